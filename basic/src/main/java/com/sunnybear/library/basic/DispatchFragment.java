@@ -14,6 +14,7 @@ import android.view.ViewGroup;
 import com.sunnybear.library.basic.fragmentstack.OnNewIntent;
 import com.sunnybear.library.basic.fragmentstack.StackManager;
 import com.sunnybear.library.eventbus.EventBusHelper;
+import com.sunnybear.library.eventbus.SubscriberLifecycle;
 
 import butterknife.ButterKnife;
 
@@ -21,7 +22,8 @@ import butterknife.ButterKnife;
  * 基础Fragment,主管模组分发
  * Created by sunnybear on 16/1/29.
  */
-public abstract class DispatchFragment<VB extends ViewModelBridge> extends Fragment implements Dispatch, OnNewIntent {
+public abstract class DispatchFragment<VB extends ViewModelBridge> extends Fragment implements Dispatch, OnNewIntent,
+        SubscriberLifecycle {
     protected Context mContext;
     protected VB mViewBinder;
 
@@ -198,6 +200,17 @@ public abstract class DispatchFragment<VB extends ViewModelBridge> extends Fragm
 
     }
 
+    /**
+     * support包的Fragment不能被EventBus直接识别,detach之后仍然注册即视为泄露.
+     * 被替换到回退栈中的Fragment虽然isRemoving()为true,但是仍然attach,注册是合法的
+     *
+     * @return 生命周期是否已经结束
+     */
+    @Override
+    public boolean isLifecycleEnded() {
+        return getActivity() == null || isDetached();
+    }
+
     /**
      * 设置Presenter实例,绑定View
      *
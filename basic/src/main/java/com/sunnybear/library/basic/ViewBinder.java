@@ -7,12 +7,13 @@ import android.os.Bundle;
 import android.support.v4.app.Fragment;
 
 import com.sunnybear.library.eventbus.EventBusHelper;
+import com.sunnybear.library.eventbus.SubscriberLifecycle;
 
 /**
  * 绑定View实例
  * Created by sunnybear on 16/1/29.
  */
-public abstract class ViewBinder<D extends Dispatch> implements ViewModelBridge {
+public abstract class ViewBinder<D extends Dispatch> implements ViewModelBridge, SubscriberLifecycle {
     protected Context mContext;
     protected D mDispatch;
     protected Fragment mFragment;
@@ -31,6 +32,18 @@ public abstract class ViewBinder<D extends Dispatch> implements ViewModelBridge
         EventBusHelper.register(this);
     }
 
+    /**
+     * 所属的Fragment detach或者Activity destroy之后仍然注册即视为泄露
+     *
+     * @return 生命周期是否已经结束
+     */
+    @Override
+    public boolean isLifecycleEnded() {
+        if (mFragment != null)
+            return mFragment.getActivity() == null || mFragment.isDetached();
+        return EventBusHelper.isDestroyed((Activity) mDispatch);
+    }
+
     @Override
     public void onBindView(Bundle args) {
 
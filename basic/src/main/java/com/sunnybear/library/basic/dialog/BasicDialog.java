@@ -1,5 +1,6 @@
 package com.sunnybear.library.basic.dialog;
 
+import android.app.Activity;
 import android.app.Dialog;
 import android.content.Context;
 import android.view.LayoutInflater;
@@ -7,6 +8,7 @@ import android.view.View;
 
 import com.sunnybear.library.basic.R;
 import com.sunnybear.library.eventbus.EventBusHelper;
+import com.sunnybear.library.eventbus.SubscriberLifecycle;
 
 import butterknife.ButterKnife;
 
@@ -14,7 +16,7 @@ import butterknife.ButterKnife;
  * 基础dialog封装
  * Created by chenkai.gu on 2016/6/23.
  */
-public abstract class BasicDialog extends Dialog {
+public abstract class BasicDialog extends Dialog implements SubscriberLifecycle {
     protected Context mContext;
 
     private View rootView;
@@ -44,6 +46,16 @@ public abstract class BasicDialog extends Dialog {
         EventBusHelper.unregister(this);
     }
 
+    /**
+     * Activity destroy之后没有dismiss的Dialog仍然注册即视为泄露
+     *
+     * @return 生命周期是否已经结束
+     */
+    @Override
+    public boolean isLifecycleEnded() {
+        return mContext instanceof Activity && EventBusHelper.isDestroyed((Activity) mContext);
+    }
+
     /**
      * 设置布局id
      *
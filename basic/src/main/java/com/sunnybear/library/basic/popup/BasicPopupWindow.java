@@ -13,6 +13,7 @@ import android.widget.PopupWindow;
 
 import com.sunnybear.library.basic.R;
 import com.sunnybear.library.eventbus.EventBusHelper;
+import com.sunnybear.library.eventbus.SubscriberLifecycle;
 
 import butterknife.ButterKnife;
 
@@ -20,7 +21,8 @@ import butterknife.ButterKnife;
  * 基础PopupWindow
  * Created by guchenkai on 2015/11/29.
  */
-public abstract class BasicPopupWindow extends PopupWindow implements View.OnTouchListener, View.OnKeyListener {
+public abstract class BasicPopupWindow extends PopupWindow implements View.OnTouchListener, View.OnKeyListener,
+        SubscriberLifecycle {
     protected Context mContext;
     private View mRootView;
     private ViewGroup mMainLayout;
@@ -89,4 +91,14 @@ public abstract class BasicPopupWindow extends PopupWindow implements View.OnTou
         EventBusHelper.unregister(this);
         super.dismiss();
     }
+
+    /**
+     * Activity destroy之后没有dismiss的PopupWindow仍然注册即视为泄露
+     *
+     * @return 生命周期是否已经结束
+     */
+    @Override
+    public boolean isLifecycleEnded() {
+        return EventBusHelper.isDestroyed(mActivity);
+    }
 }
@@ -0,0 +1,82 @@
+package com.sunnybear.library.eventbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跨进程事件转发的吞吐,两个EventBus分别作为主进程和其他进程,通过{@see EventBridge}连接.
+ * 每次调用在客户端post一批事件并等待主进程全部收到,结果为每个事件的平均耗时,包括编码、批量写入、读取和投递.
+ * JVM上的本地socket由桩代码使用回环TCP连接模拟,只能用于对比帧格式和批量策略的改动
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class BridgeBenchmark {
+    private static final int BATCH = 256;
+    private static final String TAG = "bridge";
+
+    private EventBus mServerBus;
+    private EventBus mClientBus;
+    private EventBridge mServer;
+    private EventBridge mClient;
+    private final ReceivingSubscriber mSubscriber = new ReceivingSubscriber();
+    private long mExpected;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        String name = "BridgeBenchmark-" + System.nanoTime();
+        mServerBus = new EventBus("BridgeBenchmark-server");
+        mClientBus = new EventBus("BridgeBenchmark-client");
+        mServerBus.register(mSubscriber);
+        mServer = EventBridge.listen(mServerBus, name).forward(TAG);
+        mClient = EventBridge.connect(mClientBus, name).forward(TAG);
+        while (!mClient.isConnected() || !mServer.isConnected()) {
+            Thread.sleep(10);
+        }
+        mExpected = mSubscriber.received.get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mClient.close();
+        mServer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void postAcrossBridge() {
+        for (int i = 0; i < BATCH; i++) {
+            mClientBus.post(i, TAG);
+        }
+        mExpected += BATCH;
+        while (mSubscriber.received.get() < mExpected) {
+            Thread.yield();
+        }
+    }
+
+    static class ReceivingSubscriber {
+        final AtomicLong received = new AtomicLong();
+
+        @Subcriber(tag = TAG, mode = ThreadMode.POST)
+        void onEvent(Integer event) {
+            received.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.sunnybear.library.eventbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程竞争下的注册/注销吞吐量.
+ * 一个线程模拟UI线程注册页面(LeafSubscriber),三个后台线程注册临时订阅者(TransientSubscriber),
+ * 同时另一个线程持续post,检查注册不会阻塞post也不会互相阻塞
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Group)
+public class ContendedRegisterBenchmark {
+
+    private EventBus mEventBus;
+
+    private final String mEvent = "event";
+
+    @Setup
+    public void setup() {
+        mEventBus = new EventBus("ContendedRegisterBenchmark");
+        mEventBus.register(new Subscribers.LeafSubscriber());
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void uiRegister() {
+        Object subscriber = new Subscribers.LeafSubscriber();
+        mEventBus.register(subscriber);
+        mEventBus.unregister(subscriber);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void workerRegister() {
+        Object subscriber = new Subscribers.TransientSubscriber();
+        mEventBus.register(subscriber);
+        mEventBus.unregister(subscriber);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void post() {
+        mEventBus.post(mEvent);
+    }
+}
@@ -0,0 +1,35 @@
+package com.sunnybear.library.eventbus;
+
+import com.sunnybear.library.eventbus.handler.EventHandler;
+
+/**
+ * benchmark使用的事件处理器,不论线程模型都直接在post线程调用订阅函数,不需要Android的消息循环
+ */
+final class DirectEventHandler implements EventHandler {
+    long delivered;
+
+    @Override
+    public void handleEvent(Subscription subscription, Object event) {
+        Object subscriber = subscription.getSubscriber();
+        if (subscriber == null) {
+            return;
+        }
+        try {
+            subscription.invoker.invoke(subscriber, event);
+            delivered++;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param eventBus 所有线程模型都使用同一个DirectEventHandler
+     */
+    static DirectEventHandler install(EventBus eventBus) {
+        DirectEventHandler handler = new DirectEventHandler();
+        eventBus.setUIThreadEventHandler(handler);
+        eventBus.setPostThreadHandler(handler);
+        eventBus.setAsyncEventHandler(handler);
+        return handler;
+    }
+}
@@ -0,0 +1,96 @@
+package com.sunnybear.library.eventbus;
+
+import com.sunnybear.library.eventbus.matchpolicy.DefaultMatchPolicy;
+import com.sunnybear.library.eventbus.matchpolicy.HierarchyMatchPolicy;
+import com.sunnybear.library.eventbus.matchpolicy.MatchPolicy;
+import com.sunnybear.library.eventbus.matchpolicy.StrictMatchPolicy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同匹配策略、事件继承深度和订阅数下的post开销,全部事件处理器替换为{@see DirectEventHandler}.
+ * <p>
+ * post是订阅缓存命中时的稳态开销;churn只注册/注销一个无关的订阅者,会使订阅缓存失效;
+ * postAfterChurn在churn之后post,与churn的差值就是缓存失效后按照匹配策略重新查找订阅的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+
+    @Param({"default", "hierarchy", "strict"})
+    String matchPolicy;
+
+    @Param({"0", "2", "4"})
+    int depth;
+
+    @Param({"1", "10", "100"})
+    int fanOut;
+
+    private EventBus mEventBus;
+
+    private DirectEventHandler mEventHandler;
+
+    private Object mEvent;
+
+    private final Object mChurnSubscriber = new Subscribers.TransientSubscriber();
+
+    @Setup
+    public void setup() {
+        mEventBus = new EventBus("DispatchBenchmark");
+        mEventBus.setMatchPolicy(newMatchPolicy());
+        mEventHandler = DirectEventHandler.install(mEventBus);
+        for (int i = 0; i < fanOut; i++) {
+            mEventBus.register(HierarchyEvents.newSubscriber(depth));
+        }
+        mEvent = HierarchyEvents.newEvent(depth);
+        // 检查每个订阅者都收到了事件
+        mEventBus.post(mEvent);
+        if (mEventHandler.delivered != fanOut) {
+            throw new IllegalStateException("expected " + fanOut + " deliveries, got " + mEventHandler.delivered);
+        }
+    }
+
+    private MatchPolicy newMatchPolicy() {
+        if ("strict".equals(matchPolicy)) {
+            return new StrictMatchPolicy();
+        }
+        if ("hierarchy".equals(matchPolicy)) {
+            return new HierarchyMatchPolicy();
+        }
+        return new DefaultMatchPolicy();
+    }
+
+    @Benchmark
+    public void post() {
+        mEventBus.post(mEvent);
+    }
+
+    @Benchmark
+    public void churn() {
+        mEventBus.register(mChurnSubscriber);
+        mEventBus.unregister(mChurnSubscriber);
+    }
+
+    @Benchmark
+    public void postAfterChurn() {
+        mEventBus.register(mChurnSubscriber);
+        mEventBus.unregister(mChurnSubscriber);
+        mEventBus.post(mEvent);
+    }
+}
@@ -0,0 +1,125 @@
+package com.sunnybear.library.eventbus;
+
+/**
+ * 不同继承深度的事件以及订阅它们的订阅者.
+ * DepthEvent2实现了两个继承自同一接口的接口,组成菱形的接口继承图
+ */
+final class HierarchyEvents {
+
+    private HierarchyEvents() {
+    }
+
+    interface RootMarker {
+    }
+
+    interface LeftMarker extends RootMarker {
+    }
+
+    interface RightMarker extends RootMarker {
+    }
+
+    interface LeafMarker {
+    }
+
+    static class DepthEvent0 implements RootMarker {
+    }
+
+    static class DepthEvent1 extends DepthEvent0 {
+    }
+
+    static class DepthEvent2 extends DepthEvent1 implements LeftMarker, RightMarker {
+    }
+
+    static class DepthEvent3 extends DepthEvent2 {
+    }
+
+    static class DepthEvent4 extends DepthEvent3 implements LeafMarker {
+    }
+
+    /**
+     * @param depth 0到4
+     * @return 对应继承深度的事件
+     */
+    static Object newEvent(int depth) {
+        switch (depth) {
+            case 0:
+                return new DepthEvent0();
+            case 1:
+                return new DepthEvent1();
+            case 2:
+                return new DepthEvent2();
+            case 3:
+                return new DepthEvent3();
+            case 4:
+                return new DepthEvent4();
+            default:
+                throw new IllegalArgumentException("unsupported depth " + depth);
+        }
+    }
+
+    /**
+     * @param depth 0到4
+     * @return 订阅对应继承深度事件的订阅者
+     */
+    static Object newSubscriber(int depth) {
+        switch (depth) {
+            case 0:
+                return new Depth0Subscriber();
+            case 1:
+                return new Depth1Subscriber();
+            case 2:
+                return new Depth2Subscriber();
+            case 3:
+                return new Depth3Subscriber();
+            case 4:
+                return new Depth4Subscriber();
+            default:
+                throw new IllegalArgumentException("unsupported depth " + depth);
+        }
+    }
+
+    static class Depth0Subscriber {
+        int received;
+
+        @Subcriber
+        void onEvent(DepthEvent0 event) {
+            received++;
+        }
+    }
+
+    static class Depth1Subscriber {
+        int received;
+
+        @Subcriber
+        void onEvent(DepthEvent1 event) {
+            received++;
+        }
+    }
+
+    static class Depth2Subscriber {
+        int received;
+
+        @Subcriber
+        void onEvent(DepthEvent2 event) {
+            received++;
+        }
+    }
+
+    static class Depth3Subscriber {
+        int received;
+
+        @Subcriber
+        void onEvent(DepthEvent3 event) {
+            received++;
+        }
+    }
+
+    static class Depth4Subscriber {
+        int received;
+
+        @Subcriber
+        void onEvent(DepthEvent4 event) {
+            received++;
+        }
+    }
+}
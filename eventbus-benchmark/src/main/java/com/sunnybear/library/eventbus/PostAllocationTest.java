@@ -0,0 +1,78 @@
+package com.sunnybear.library.eventbus;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * post的内存分配测试,失败时以非0状态退出.
+ * <p>
+ * 订阅已经解析之后,向POST模式的订阅者(使用订阅者索引生成的调用器)post事件不应该分配内存.
+ * 用当前线程的已分配字节数统计post前后的差值,开启和关闭{@see EventBusMetrics}都要检查.
+ * <p>
+ * 运行: ./gradlew :eventbus-benchmark:allocationTest
+ */
+public final class PostAllocationTest {
+    private static final int WARMUP_POSTS = 200000;
+    private static final int POSTS = 1000000;
+    /**
+     * 允许的分配字节数,只容纳统计本身可能产生的少量分配,每次post分配哪怕1字节也会远超该值
+     */
+    private static final long TOLERANCE_BYTES = 4096;
+    private static final String TAG = "allocation";
+
+    private PostAllocationTest() {
+    }
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        check(threadBean.isThreadAllocatedMemorySupported(), "thread allocated memory is not supported by this JVM");
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        try {
+            measure(threadBean, false);
+            measure(threadBean, true);
+        } finally {
+            EventBusMetrics.getDefault().setEnabled(false);
+        }
+        System.out.println("PostAllocationTest passed");
+    }
+
+    private static void measure(com.sun.management.ThreadMXBean threadBean, boolean metrics) {
+        EventBusMetrics.getDefault().setEnabled(metrics);
+        EventBusMetrics.getDefault().reset();
+        EventBus eventBus = new EventBus("PostAllocationTest");
+        CountingSubscriber subscriber = new CountingSubscriber();
+        eventBus.register(subscriber);
+        String event = "event";
+        // 解析订阅并让post路径完成编译
+        for (int i = 0; i < WARMUP_POSTS; i++) {
+            eventBus.post(event, TAG);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < POSTS; i++) {
+            eventBus.post(event, TAG);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+        check(subscriber.received == WARMUP_POSTS + POSTS,
+                "metrics=" + metrics + ": received " + subscriber.received + " events");
+        System.out.println("metrics=" + metrics + ": " + allocated + " bytes for " + POSTS + " posts");
+        check(allocated <= TOLERANCE_BYTES, "metrics=" + metrics + ": post allocated " + allocated + " bytes ("
+                + (double) allocated / POSTS + " B/op)");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("PostAllocationTest failed: " + message);
+            System.exit(1);
+        }
+    }
+
+    static class CountingSubscriber {
+        int received;
+
+        @Subcriber(tag = TAG, mode = ThreadMode.POST)
+        void onEvent(String event) {
+            received++;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.sunnybear.library.eventbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POST模式下单个订阅者的post开销.
+ * generated使用订阅者索引生成的调用器;reflective的订阅者是private内部类,不会生成索引,走反射调用.
+ * 加上"-prof gc"参数运行可以查看每次post的内存分配(gc.alloc.rate.norm),已解析的订阅应为0 B/op,
+ * 由{@see PostAllocationTest}检查.
+ * metrics对比开启和关闭{@see EventBusMetrics}的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class PostBenchmark {
+
+    @Param({"generated", "reflective"})
+    String invoker;
+
+    @Param({"false", "true"})
+    boolean metrics;
+
+    private EventBus mEventBus;
+
+    private final String mEvent = "event";
+
+    @Setup
+    public void setup() {
+        EventBusMetrics.getDefault().setEnabled(metrics);
+        EventBusMetrics.getDefault().reset();
+        mEventBus = new EventBus("PostBenchmark");
+        mEventBus.register("generated".equals(invoker) ? new IndexedSubscriber() : new ReflectiveSubscriber());
+    }
+
+    @TearDown
+    public void tearDown() {
+        EventBusMetrics.getDefault().setEnabled(false);
+    }
+
+    @Benchmark
+    public void post() {
+        mEventBus.post(mEvent);
+    }
+
+    static class IndexedSubscriber {
+        int received;
+
+        @Subcriber(mode = ThreadMode.POST)
+        void onEvent(String event) {
+            received++;
+        }
+    }
+
+    private static class ReflectiveSubscriber {
+        int received;
+
+        @Subcriber(mode = ThreadMode.POST)
+        void onEvent(String event) {
+            received++;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.sunnybear.library.eventbus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注册/注销吞吐量.
+ * methodCache=false时每次注册前清空订阅函数缓存,对应没有缓存时每次都重新查找订阅函数的开销
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class RegisterBenchmark {
+
+    @Param({"true", "false"})
+    boolean methodCache;
+
+    private EventBus mEventBus;
+
+    @Setup
+    public void setup() {
+        mEventBus = new EventBus("RegisterBenchmark");
+    }
+
+    @Benchmark
+    public void registerUnregister() {
+        if (!methodCache) {
+            SubsciberMethodHunter.clearMethodCache();
+        }
+        Object subscriber = new Subscribers.LeafSubscriber();
+        mEventBus.register(subscriber);
+        mEventBus.unregister(subscriber);
+    }
+}
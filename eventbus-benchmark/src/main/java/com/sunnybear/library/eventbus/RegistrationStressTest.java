@@ -0,0 +1,176 @@
+package com.sunnybear.library.eventbus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * 并发注册/注销的压力测试,失败时以非0状态退出.
+ * <p>
+ * 1. 多个线程同时注册同一EventType的不同订阅者,全部注册完成后订阅数必须等于订阅者数,全部注销后订阅map必须为空;
+ * 2. 多个线程反复注册/注销临时订阅者的同时持续post,常驻订阅者每次都必须收到事件;
+ * 3. 多个线程反复注册/注销同一个订阅者,最后注销后订阅map必须为空.
+ * <p>
+ * 运行: ./gradlew :eventbus-benchmark:stressTest
+ */
+public final class RegistrationStressTest {
+    private static final int THREAD_COUNT = 8;
+    private static final int SUBSCRIBERS_PER_THREAD = 200;
+    private static final int ROUNDS = 50;
+    private static final int CHURN_ITERATIONS = 20000;
+
+    private RegistrationStressTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            concurrentRegisterUnregister();
+        }
+        churnWhilePosting();
+        for (int round = 0; round < ROUNDS; round++) {
+            sameSubscriberChurn();
+        }
+        System.out.println("RegistrationStressTest passed");
+    }
+
+    /**
+     * 同时注册再同时注销,检查没有订阅丢失或者残留
+     */
+    private static void concurrentRegisterUnregister() throws Exception {
+        final EventBus eventBus = new EventBus("RegistrationStressTest");
+        final CyclicBarrier barrier = new CyclicBarrier(THREAD_COUNT + 1);
+        final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        List<Object> subscribers = new ArrayList<Object>();
+                        for (int j = 0; j < SUBSCRIBERS_PER_THREAD; j++) {
+                            subscribers.add(new Subscribers.TransientSubscriber());
+                        }
+                        barrier.await();
+                        for (Object subscriber : subscribers) {
+                            eventBus.register(subscriber);
+                        }
+                        barrier.await();
+                        // 主线程检查注册结果
+                        barrier.await();
+                        for (Object subscriber : subscribers) {
+                            eventBus.unregister(subscriber);
+                        }
+                        barrier.await();
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        barrier.await();
+        barrier.await();
+        List<Subscription> subscriptions = eventBus.getSubscriberMap().get(new EventType(String.class, "transient"));
+        int count = subscriptions == null ? 0 : subscriptions.size();
+        check(count == THREAD_COUNT * SUBSCRIBERS_PER_THREAD,
+                "expected " + THREAD_COUNT * SUBSCRIBERS_PER_THREAD + " subscriptions, found " + count);
+        barrier.await();
+        barrier.await();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check(errors.isEmpty(), "worker failed: " + errors);
+        check(eventBus.getSubscriberMap().isEmpty(), "subscriptions left after unregister: " + eventBus.getSubscriberMap());
+    }
+
+    /**
+     * 临时订阅者反复注册/注销时post,常驻订阅者不能漏收事件
+     */
+    private static void churnWhilePosting() throws Exception {
+        final EventBus eventBus = new EventBus("RegistrationStressTest");
+        final Subscribers.LeafSubscriber resident = new Subscribers.LeafSubscriber();
+        eventBus.register(resident);
+        final CountDownLatch done = new CountDownLatch(THREAD_COUNT);
+        final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            final boolean sameEventType = i % 2 == 0;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < CHURN_ITERATIONS; j++) {
+                            // 一半线程与常驻订阅者竞争同一个订阅列表
+                            Object subscriber = sameEventType ? new Subscribers.LeafSubscriber()
+                                    : new Subscribers.TransientSubscriber();
+                            eventBus.register(subscriber);
+                            eventBus.unregister(subscriber);
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        int posted = 0;
+        while (done.getCount() > 0) {
+            // LeafSubscriber中有两个订阅String事件的函数,分别使用默认tag和"leaf"
+            int before = resident.received;
+            eventBus.post("event");
+            eventBus.post("event", "leaf");
+            check(resident.received == before + 2, "resident subscriber missed an event");
+            posted++;
+        }
+        check(errors.isEmpty(), "worker failed: " + errors);
+        eventBus.unregister(resident);
+        check(eventBus.getSubscriberMap().isEmpty(), "subscriptions left after unregister: " + eventBus.getSubscriberMap());
+        System.out.println("posted " + posted + " rounds during churn");
+    }
+
+    /**
+     * 同一个订阅者在多个线程中同时注册/注销,注销流程不能漏掉任何订阅
+     */
+    private static void sameSubscriberChurn() throws Exception {
+        final EventBus eventBus = new EventBus("RegistrationStressTest");
+        final Object subscriber = new Subscribers.LeafSubscriber();
+        final CyclicBarrier barrier = new CyclicBarrier(THREAD_COUNT);
+        final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        for (int j = 0; j < SUBSCRIBERS_PER_THREAD; j++) {
+                            eventBus.register(subscriber);
+                            eventBus.unregister(subscriber);
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check(errors.isEmpty(), "worker failed: " + errors);
+        eventBus.unregister(subscriber);
+        check(eventBus.getSubscriberMap().isEmpty(),
+                "subscriptions left after concurrent unregister: " + eventBus.getSubscriberMap());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("RegistrationStressTest failed: " + message);
+            System.exit(1);
+        }
+    }
+}
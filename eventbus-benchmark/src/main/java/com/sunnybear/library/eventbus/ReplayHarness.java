@@ -0,0 +1,91 @@
+package com.sunnybear.library.eventbus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * 回放{@see EventRecorder}录制的事件日志,输出吞吐量和post耗时分布,用于对比不同版本的投递性能.
+ * <p>
+ * 运行: ./gradlew :eventbus-benchmark:replay -PreplayArgs="events.log paced"
+ * 不指定日志时先录制一段合成的事件流再回放.回放使用benchmark中的订阅者,回放应用的日志时需要把应用的订阅者加入classpath并注册
+ */
+public final class ReplayHarness {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 5;
+    private static final int SYNTHETIC_EVENTS = 100000;
+    private static final int SUBSCRIBER_COUNT = 10;
+
+    private ReplayHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean paced = args.length > 1 && "paced".equals(args[1]);
+        EventReplayer replayer = new EventReplayer();
+        InputStream in = args.length > 0 ? new FileInputStream(new File(args[0]))
+                : new ByteArrayInputStream(recordSyntheticLog());
+        try {
+            replayer.load(in);
+        } finally {
+            in.close();
+        }
+        System.out.println("loaded " + replayer.getEventCount() + " events, skipped " + replayer.getSkippedCount());
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURE_ROUNDS; round++) {
+            EventReplayer.ReplayResult result = replayer.replay(newTargetBus(), paced);
+            System.out.println((round < WARMUP_ROUNDS ? "warmup  " : "measure ") + result);
+        }
+    }
+
+    /**
+     * @return 回放的目标EventBus,所有线程模型都在post线程执行
+     */
+    private static EventBus newTargetBus() {
+        EventBus eventBus = new EventBus("ReplayHarness");
+        DirectEventHandler.install(eventBus);
+        for (int i = 0; i < SUBSCRIBER_COUNT; i++) {
+            eventBus.register(new Subscribers.LeafSubscriber());
+        }
+        for (int depth = 0; depth <= 4; depth++) {
+            eventBus.register(HierarchyEvents.newSubscriber(depth));
+        }
+        return eventBus;
+    }
+
+    /**
+     * 录制一段合成的事件流,包含不同类型、tag和继承深度的事件
+     */
+    private static byte[] recordSyntheticLog() throws IOException {
+        EventBus eventBus = new EventBus("ReplayHarness-recording");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EventRecorder recorder = EventRecorder.start(eventBus, out);
+        Random random = new Random(42);
+        for (int i = 0; i < SYNTHETIC_EVENTS; i++) {
+            int kind = random.nextInt(100);
+            if (kind < 40) {
+                eventBus.post("event-" + (i % 16));
+            } else if (kind < 55) {
+                eventBus.post(i, "base");
+            } else if (kind < 65) {
+                eventBus.post((long) i);
+            } else if (kind < 75) {
+                eventBus.post("leaf-" + (i % 16), "leaf");
+            } else if (kind < 80) {
+                eventBus.post((double) i);
+            } else {
+                eventBus.post(HierarchyEvents.newEvent(random.nextInt(5)));
+            }
+            // 录制队列有界,给录制线程留出时间
+            if (i % 1024 == 0) {
+                Thread.yield();
+            }
+        }
+        recorder.close();
+        System.out.println("recorded " + recorder.getRecordedCount() + " events (" + out.size() + " bytes), dropped "
+                + recorder.getDroppedCount());
+        return out.toByteArray();
+    }
+}
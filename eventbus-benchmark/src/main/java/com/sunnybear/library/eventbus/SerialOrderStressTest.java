@@ -0,0 +1,98 @@
+package com.sunnybear.library.eventbus;
+
+import com.sunnybear.library.eventbus.handler.ThreadPoolEventHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ThreadPoolEventHandler串行模式的压力测试,失败时以非0状态退出.
+ * <p>
+ * 用很小的队列容量让线程池持续溢出,每个订阅者都必须按post顺序收到全部事件,且同一时刻只有一个事件在执行;
+ * 非工作线程post的事件不能绕过队列容量.
+ * <p>
+ * 运行: ./gradlew :eventbus-benchmark:serialOrderTest
+ */
+public final class SerialOrderStressTest {
+    private static final int THREAD_COUNT = 2;
+    private static final int QUEUE_CAPACITY = 4;
+    private static final int SUBSCRIBER_COUNT = 4;
+    private static final int EVENT_COUNT = 5000;
+
+    private SerialOrderStressTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (ThreadPoolEventHandler.OverflowPolicy policy : ThreadPoolEventHandler.OverflowPolicy.values()) {
+            if (policy != ThreadPoolEventHandler.OverflowPolicy.DISCARD) {
+                saturate(policy);
+            }
+        }
+        System.out.println("SerialOrderStressTest passed");
+    }
+
+    private static void saturate(ThreadPoolEventHandler.OverflowPolicy policy) throws Exception {
+        EventBus eventBus = new EventBus("SerialOrderStressTest");
+        ThreadPoolEventHandler handler = new ThreadPoolEventHandler(THREAD_COUNT, QUEUE_CAPACITY, policy, true);
+        eventBus.setAsyncEventHandler(handler);
+        CountDownLatch done = new CountDownLatch(SUBSCRIBER_COUNT);
+        List<OrderedSubscriber> subscribers = new ArrayList<OrderedSubscriber>();
+        for (int i = 0; i < SUBSCRIBER_COUNT; i++) {
+            OrderedSubscriber subscriber = new OrderedSubscriber(done);
+            subscribers.add(subscriber);
+            eventBus.register(subscriber);
+        }
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            eventBus.post(Integer.valueOf(i), "serial");
+        }
+        check(done.await(30, TimeUnit.SECONDS), policy + ": timed out, completed=" + handler.getCompletedCount());
+        for (OrderedSubscriber subscriber : subscribers) {
+            check(subscriber.mError == null, policy + ": " + subscriber.mError);
+        }
+        // 只有工作线程中的post可以不占用队列容量,这里全部在主线程post
+        check(handler.getOverflowQueuedCount() == 0, policy + ": " + handler.getOverflowQueuedCount()
+                + " events bypassed the queue capacity");
+        handler.shutdown();
+        System.out.println(policy + ": overflowQueued=" + handler.getOverflowQueuedCount()
+                + " callerRuns=" + handler.getCallerRunsCount());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("SerialOrderStressTest failed: " + message);
+            System.exit(1);
+        }
+    }
+
+    static class OrderedSubscriber {
+        final CountDownLatch mDone;
+        final AtomicInteger mRunning = new AtomicInteger();
+        int mExpected;
+        volatile String mError;
+
+        OrderedSubscriber(CountDownLatch done) {
+            mDone = done;
+        }
+
+        @Subcriber(tag = "serial", mode = ThreadMode.ASYNC)
+        void onEvent(Integer event) {
+            if (mRunning.incrementAndGet() != 1 && mError == null) {
+                mError = "concurrent delivery at event " + event;
+            }
+            if (event.intValue() != mExpected && mError == null) {
+                mError = "expected event " + mExpected + " but got " + event;
+            }
+            mExpected = event.intValue() + 1;
+            if (event.intValue() % 64 == 0) {
+                Thread.yield();
+            }
+            mRunning.decrementAndGet();
+            if (mExpected == EVENT_COUNT) {
+                mDone.countDown();
+            }
+        }
+    }
+}
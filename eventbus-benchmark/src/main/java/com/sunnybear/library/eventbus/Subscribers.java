@@ -0,0 +1,62 @@
+package com.sunnybear.library.eventbus;
+
+/**
+ * benchmark使用的订阅者,LeafSubscriber三层继承,每层声明两个订阅函数
+ */
+final class Subscribers {
+
+    private Subscribers() {
+    }
+
+    static class BaseSubscriber {
+        int received;
+
+        @Subcriber(mode = ThreadMode.POST)
+        void onBaseEvent(String event) {
+            received++;
+        }
+
+        @Subcriber(tag = "base", mode = ThreadMode.POST)
+        void onBaseTagEvent(Integer event) {
+            received++;
+        }
+    }
+
+    static class MiddleSubscriber extends BaseSubscriber {
+
+        @Subcriber(mode = ThreadMode.POST)
+        void onMiddleEvent(Long event) {
+            received++;
+        }
+
+        @Subcriber(tag = "middle", mode = ThreadMode.POST)
+        void onMiddleTagEvent(String event) {
+            received++;
+        }
+    }
+
+    static class LeafSubscriber extends MiddleSubscriber {
+
+        @Subcriber(mode = ThreadMode.POST)
+        void onLeafEvent(Double event) {
+            received++;
+        }
+
+        @Subcriber(tag = "leaf", mode = ThreadMode.POST)
+        void onLeafTagEvent(String event) {
+            received++;
+        }
+    }
+
+    /**
+     * 后台任务中临时注册的订阅者,订阅与LeafSubscriber不同的EventType
+     */
+    static class TransientSubscriber {
+        int received;
+
+        @Subcriber(tag = "transient", mode = ThreadMode.POST)
+        void onTransientEvent(String event) {
+            received++;
+        }
+    }
+}
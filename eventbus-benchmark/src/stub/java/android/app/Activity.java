@@ -0,0 +1,25 @@
+package android.app;
+
+/**
+ * JVM桩代码,只提供EventBus泄露诊断用到的状态
+ */
+public class Activity {
+    private boolean mFinished;
+    private boolean mDestroyed;
+
+    public void finish() {
+        mFinished = true;
+    }
+
+    public boolean isFinishing() {
+        return mFinished;
+    }
+
+    public boolean isDestroyed() {
+        return mDestroyed;
+    }
+
+    public void onDestroy() {
+        mDestroyed = true;
+    }
+}
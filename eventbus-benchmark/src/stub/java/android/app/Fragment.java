@@ -0,0 +1,25 @@
+package android.app;
+
+/**
+ * JVM桩代码,只提供EventBus泄露诊断用到的状态
+ */
+public class Fragment {
+    private Activity mActivity;
+    private boolean mDetached;
+
+    public void onAttach(Activity activity) {
+        mActivity = activity;
+    }
+
+    public void onDetach() {
+        mActivity = null;
+    }
+
+    public final Activity getActivity() {
+        return mActivity;
+    }
+
+    public final boolean isDetached() {
+        return mDetached;
+    }
+}
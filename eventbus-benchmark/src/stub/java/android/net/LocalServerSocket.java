@@ -0,0 +1,38 @@
+package android.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM桩代码,使用回环地址上的TCP端口模拟本地socket
+ */
+public class LocalServerSocket {
+    /**
+     * 本地socket名字-端口
+     */
+    static final Map<String, Integer> sPorts = new ConcurrentHashMap<String, Integer>();
+
+    private final String mName;
+    private final ServerSocket mServerSocket;
+
+    public LocalServerSocket(String name) throws IOException {
+        mName = name;
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        if (sPorts.putIfAbsent(name, mServerSocket.getLocalPort()) != null) {
+            mServerSocket.close();
+            throw new IOException("Address already in use: " + name);
+        }
+    }
+
+    public LocalSocket accept() throws IOException {
+        return new LocalSocket(mServerSocket.accept());
+    }
+
+    public void close() throws IOException {
+        sPorts.remove(mName, mServerSocket.getLocalPort());
+        mServerSocket.close();
+    }
+}
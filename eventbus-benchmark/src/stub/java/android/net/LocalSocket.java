@@ -0,0 +1,50 @@
+package android.net;
+
+import android.os.Process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * JVM桩代码,使用回环地址上的TCP连接模拟本地socket
+ */
+public class LocalSocket {
+    private final Socket mSocket;
+
+    public LocalSocket() {
+        mSocket = new Socket();
+    }
+
+    LocalSocket(Socket socket) {
+        mSocket = socket;
+    }
+
+    public void connect(LocalSocketAddress endpoint) throws IOException {
+        Integer port = LocalServerSocket.sPorts.get(endpoint.getName());
+        if (port == null) {
+            throw new IOException("Connection refused: " + endpoint.getName());
+        }
+        mSocket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        mSocket.setTcpNoDelay(true);
+    }
+
+    public InputStream getInputStream() throws IOException {
+        return mSocket.getInputStream();
+    }
+
+    public OutputStream getOutputStream() throws IOException {
+        return mSocket.getOutputStream();
+    }
+
+    public Credentials getPeerCredentials() throws IOException {
+        return new Credentials(0, Process.myUid(), Process.myUid());
+    }
+
+    public void close() throws IOException {
+        mSocket.close();
+    }
+}
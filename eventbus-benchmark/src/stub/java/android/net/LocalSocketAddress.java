@@ -0,0 +1,16 @@
+package android.net;
+
+/**
+ * JVM桩代码
+ */
+public class LocalSocketAddress {
+    private final String name;
+
+    public LocalSocketAddress(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
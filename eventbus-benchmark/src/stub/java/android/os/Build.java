@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * JVM桩代码
+ */
+public class Build {
+    public static class VERSION {
+        public static final int SDK_INT = VERSION_CODES.JELLY_BEAN_MR1;
+    }
+
+    public static class VERSION_CODES {
+        public static final int JELLY_BEAN_MR1 = 17;
+    }
+}
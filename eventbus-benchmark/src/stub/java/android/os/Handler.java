@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * JVM桩代码,post的任务直接在调用线程执行
+ */
+public class Handler {
+
+    public Handler() {
+    }
+
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable r) {
+        r.run();
+        return true;
+    }
+}
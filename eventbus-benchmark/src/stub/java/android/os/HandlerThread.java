@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * JVM桩代码,不启动真正的线程
+ */
+public class HandlerThread extends Thread {
+    private final Looper mLooper = new Looper();
+
+    public HandlerThread(String name) {
+        super(name);
+    }
+
+    @Override
+    public synchronized void start() {
+    }
+
+    public Looper getLooper() {
+        return mLooper;
+    }
+}
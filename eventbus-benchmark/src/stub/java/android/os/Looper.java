@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * JVM桩代码,benchmark中没有消息循环
+ */
+public final class Looper {
+    private static final Looper sMainLooper = new Looper();
+
+    public static Looper getMainLooper() {
+        return sMainLooper;
+    }
+
+    public static Looper myLooper() {
+        return sMainLooper;
+    }
+}
@@ -0,0 +1,13 @@
+package android.os;
+
+/**
+ * JVM桩代码
+ */
+public final class SystemClock {
+    private SystemClock() {
+    }
+
+    public static long uptimeMillis() {
+        return System.nanoTime() / 1000000L;
+    }
+}
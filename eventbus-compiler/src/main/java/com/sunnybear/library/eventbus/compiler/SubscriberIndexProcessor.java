@@ -0,0 +1,304 @@
+package com.sunnybear.library.eventbus.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * 订阅者索引生成器.
+ * <p>
+ * 为每个继承链上含有@Subcriber函数的类生成一个"类名$$SubscriberIndex"索引类,索引中包含了该类及其父类的全部订阅函数,
+ * 以及直接调用订阅函数的EventInvoker,注册时只需要加载一个索引类即可,不再需要在运行时逐级反射父类,分发时也不再经过Method.invoke.
+ * 订阅函数对索引类不可见时(例如private函数、private内部类)不生成索引,运行时会退回到反射查找.
+ */
+public class SubscriberIndexProcessor extends AbstractProcessor {
+    private static final String SUBCRIBER_ANNOTATION = "com.sunnybear.library.eventbus.Subcriber";
+    private static final String EVENTBUS_PACKAGE = "com.sunnybear.library.eventbus";
+    private static final String INDEX_SUFFIX = "$$SubscriberIndex";
+
+    private Elements mElements;
+    private Types mTypes;
+    private Filer mFiler;
+    private Messager mMessager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        mElements = processingEnv.getElementUtils();
+        mTypes = processingEnv.getTypeUtils();
+        mFiler = processingEnv.getFiler();
+        mMessager = processingEnv.getMessager();
+    }
+
+    /**
+     * 没有声明订阅函数的子类同样需要索引,所以这里处理全部类型而不仅仅是含有注解的类型
+     */
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            return false;
+        }
+        List<TypeElement> types = new ArrayList<TypeElement>();
+        collectTypes(roundEnv.getRootElements(), types);
+        for (TypeElement type : types) {
+            generateIndex(type);
+        }
+        return false;
+    }
+
+    /**
+     * 收集全部类型,包括内部类
+     */
+    private void collectTypes(Iterable<? extends Element> elements, List<TypeElement> types) {
+        for (TypeElement type : ElementFilter.typesIn(elements)) {
+            types.add(type);
+            collectTypes(type.getEnclosedElements(), types);
+        }
+    }
+
+    private void generateIndex(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)
+                || type.getQualifiedName().toString().endsWith(INDEX_SUFFIX)) {
+            return;
+        }
+        List<SubscriberMethod> methods = findSubscriberMethods(type);
+        if (methods.isEmpty()) {
+            return;
+        }
+        String packageName = mElements.getPackageOf(type).getQualifiedName().toString();
+        if (!isAccessible(type, packageName)) {
+            note(type, "%s is not accessible from its package, subscriber index skipped.", type);
+            return;
+        }
+        for (SubscriberMethod method : methods) {
+            if (!isInvokable(method, packageName)) {
+                note(method.element, "%s.%s is not invokable from %s, subscriber index of %s skipped.",
+                        method.declaringType, method.element, packageName, type);
+                return;
+            }
+        }
+
+        String binaryName = mElements.getBinaryName(type).toString();
+        String indexName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + INDEX_SUFFIX;
+        try {
+            JavaFileObject source = mFiler.createSourceFile(
+                    packageName.isEmpty() ? indexName : packageName + "." + indexName, type);
+            Writer writer = source.openWriter();
+            try {
+                writer.write(brewJava(packageName, indexName, type, methods));
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            mMessager.printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write subscriber index for " + type + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * 沿继承链查找订阅函数,子类中覆写的函数优先,与运行时的SubsciberMethodHunter保持一致
+     */
+    private List<SubscriberMethod> findSubscriberMethods(TypeElement type) {
+        List<SubscriberMethod> methods = new ArrayList<SubscriberMethod>();
+        Set<String> signatures = new HashSet<String>();
+        TypeElement current = type;
+        while (current != null && !isSystemClass(current.getQualifiedName().toString())) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                AnnotationMirror annotation = getSubcriberAnnotation(method);
+                if (annotation == null || method.getParameters().size() != 1) {
+                    continue;
+                }
+                TypeMirror paramType = mTypes.erasure(method.getParameters().get(0).asType());
+                if (!signatures.add(method.getSimpleName() + "(" + paramType + ")")) {
+                    continue;
+                }
+                methods.add(createSubscriberMethod(current, method, paramType, annotation));
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) mTypes.asElement(superclass) : null;
+        }
+        return methods;
+    }
+
+    private SubscriberMethod createSubscriberMethod(TypeElement declaringType, ExecutableElement method,
+                                                    TypeMirror paramType, AnnotationMirror annotation) {
+        String tag = null;
+        String threadMode = null;
+        boolean latestOnly = false;
+        boolean sticky = false;
+        int priority = 0;
+        long deadlineMillis = 0;
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : mElements.getElementValuesWithDefaults(annotation).entrySet()) {
+            String name = entry.getKey().getSimpleName().toString();
+            Object value = entry.getValue().getValue();
+            if ("tag".equals(name)) {
+                tag = (String) value;
+            } else if ("mode".equals(name)) {
+                threadMode = ((Element) value).getSimpleName().toString();
+            } else if ("latestOnly".equals(name)) {
+                latestOnly = (Boolean) value;
+            } else if ("sticky".equals(name)) {
+                sticky = (Boolean) value;
+            } else if ("priority".equals(name)) {
+                priority = (Integer) value;
+            } else if ("deadlineMillis".equals(name)) {
+                deadlineMillis = (Long) value;
+            }
+        }
+        return new SubscriberMethod(declaringType, method, paramType, tag, threadMode, latestOnly, sticky,
+                priority, deadlineMillis);
+    }
+
+    private AnnotationMirror getSubcriberAnnotation(ExecutableElement method) {
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(SUBCRIBER_ANNOTATION)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 生成的索引类位于packageName包中,需要能够引用type的类字面量
+     */
+    private boolean isAccessible(TypeElement type, String packageName) {
+        boolean samePackage = mElements.getPackageOf(type).getQualifiedName().contentEquals(packageName);
+        Element element = type;
+        while (element instanceof TypeElement) {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)
+                    || (!samePackage && !modifiers.contains(Modifier.PUBLIC))) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * 生成的EventInvoker需要能够直接调用订阅函数
+     */
+    private boolean isInvokable(SubscriberMethod method, String packageName) {
+        Set<Modifier> modifiers = method.element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        boolean samePackage = mElements.getPackageOf(method.declaringType).getQualifiedName()
+                .contentEquals(packageName);
+        if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+            return false;
+        }
+        // EventInvoker.invoke只声明了Exception
+        TypeMirror exceptionType = mElements.getTypeElement(Exception.class.getName()).asType();
+        TypeMirror errorType = mElements.getTypeElement(Error.class.getName()).asType();
+        for (TypeMirror thrownType : method.element.getThrownTypes()) {
+            if (!mTypes.isAssignable(thrownType, exceptionType) && !mTypes.isAssignable(thrownType, errorType)) {
+                return false;
+            }
+        }
+        TypeMirror paramType = method.paramType;
+        while (paramType.getKind() == TypeKind.ARRAY) {
+            paramType = ((ArrayType) paramType).getComponentType();
+        }
+        return paramType.getKind() != TypeKind.DECLARED
+                || isAccessible((TypeElement) mTypes.asElement(paramType), packageName);
+    }
+
+    /**
+     * 基本类型的参数在调用时由装箱类型拆箱
+     */
+    private String castType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return mTypes.boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private boolean isSystemClass(String name) {
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("android.");
+    }
+
+    private String brewJava(String packageName, String indexName, TypeElement type,
+                            List<SubscriberMethod> methods) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("// Generated code from eventbus-compiler. Do not modify!\n");
+        if (!packageName.isEmpty()) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+        builder.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        builder.append("public final class ").append(indexName)
+                .append(" implements ").append(EVENTBUS_PACKAGE).append(".SubscriberIndex {\n");
+        builder.append("    private static final ").append(EVENTBUS_PACKAGE).append(".SubscriberMethodInfo[] METHODS = {\n");
+        for (SubscriberMethod method : methods) {
+            builder.append("            new ").append(EVENTBUS_PACKAGE).append(".SubscriberMethodInfo(")
+                    .append(mElements.getConstantExpression(method.methodName)).append(", ")
+                    .append(method.paramType).append(".class, ")
+                    .append(mElements.getConstantExpression(method.tag)).append(", ")
+                    .append(EVENTBUS_PACKAGE).append(".ThreadMode.").append(method.threadMode).append(", ")
+                    .append(method.latestOnly).append(", ")
+                    .append(method.sticky).append(", ")
+                    .append(method.priority).append(", ")
+                    .append(method.deadlineMillis).append("L,\n");
+            builder.append("                    new ").append(EVENTBUS_PACKAGE).append(".EventInvoker() {\n");
+            builder.append("                        @Override\n");
+            builder.append("                        public void invoke(Object subscriber, Object event) throws Exception {\n");
+            builder.append("                            ((").append(type.getQualifiedName()).append(") subscriber).")
+                    .append(method.methodName).append("((").append(castType(method.paramType)).append(") event);\n");
+            builder.append("                        }\n");
+            builder.append("                    }),\n");
+        }
+        builder.append("    };\n\n");
+        builder.append("    @Override\n");
+        builder.append("    public ").append(EVENTBUS_PACKAGE).append(".SubscriberMethodInfo[] getSubscriberMethods() {\n");
+        builder.append("        return METHODS;\n");
+        builder.append("    }\n");
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private void note(Element element, String message, Object... args) {
+        mMessager.printMessage(Diagnostic.Kind.NOTE, String.format(message, args), element);
+    }
+}
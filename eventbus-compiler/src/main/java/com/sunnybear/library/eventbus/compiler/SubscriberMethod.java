@@ -0,0 +1,66 @@
+package com.sunnybear.library.eventbus.compiler;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * 编译期解析出的一个订阅函数,对应运行时的SubscriberMethodInfo
+ */
+final class SubscriberMethod {
+    /**
+     * 声明该函数的类
+     */
+    final TypeElement declaringType;
+    /**
+     * 订阅函数
+     */
+    final ExecutableElement element;
+    /**
+     * 函数名
+     */
+    final String methodName;
+    /**
+     * 函数参数类型(已擦除泛型)
+     */
+    final TypeMirror paramType;
+    /**
+     * 事件的tag
+     */
+    final String tag;
+    /**
+     * 线程模型枚举常量名
+     */
+    final String threadMode;
+    /**
+     * 是否只投递最新的事件
+     */
+    final boolean latestOnly;
+    /**
+     * 是否接收粘性事件
+     */
+    final boolean sticky;
+    /**
+     * 投递优先级
+     */
+    final int priority;
+    /**
+     * ThreadMode.MAIN_DEADLINE事件的最长等待时间
+     */
+    final long deadlineMillis;
+
+    SubscriberMethod(TypeElement declaringType, ExecutableElement element, TypeMirror paramType,
+                     String tag, String threadMode, boolean latestOnly, boolean sticky, int priority,
+                     long deadlineMillis) {
+        this.declaringType = declaringType;
+        this.element = element;
+        this.methodName = element.getSimpleName().toString();
+        this.paramType = paramType;
+        this.tag = tag;
+        this.threadMode = threadMode;
+        this.latestOnly = latestOnly;
+        this.sticky = sticky;
+        this.priority = priority;
+        this.deadlineMillis = deadlineMillis;
+    }
+}
@@ -15,3 +15,16 @@
 #-keepclassmembers class fqcn.of.javascript.interface.for.webview {
 #   public *;
 #}
+
+# EventBus
+-keepclassmembers class * {
+    @com.sunnybear.library.eventbus.Subcriber <methods>;
+}
+-keep class * implements com.sunnybear.library.eventbus.SubscriberIndex {
+    <init>();
+}
+# 索引按订阅者类名+$$SubscriberIndex查找,两边的类名都不能混淆,否则会退回反射扫描
+-keepclasseswithmembernames class * {
+    @com.sunnybear.library.eventbus.Subcriber <methods>;
+}
+-keepnames class **$$SubscriberIndex
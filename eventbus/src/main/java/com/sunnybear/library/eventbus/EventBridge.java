@@ -0,0 +1,539 @@
+package com.sunnybear.library.eventbus;
+
+import android.net.LocalServerSocket;
+import android.net.LocalSocket;
+import android.net.LocalSocketAddress;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多进程应用中在进程之间转发EventBus事件的桥,默认不开启.
+ * <p>
+ * 主进程调用{@see #listen(String)}监听一个本地socket,其他进程(例如:push进程)调用{@see #connect(String)}连接,
+ * 每个进程只保持一个长连接.通过{@see #forward(String)}选择需要转发的tag,之后在任意一端post这些tag的事件,
+ * 另一端的EventBus也会收到;从对端收到的事件只在本进程投递,不会被再次转发回去.
+ * <p>
+ * 发送线程每次把队列中已有的事件一起编码为一帧写入socket,帧格式:
+ * <pre>
+ * frame   := varint(bodyLength) body
+ * body    := event*
+ * event   := string(tag) string(typeName) varint(payloadLength) payload
+ * </pre>
+ * string见{@see StringTable},tag和事件类名在每个连接上只完整发送一次.事件内容由{@see EventCodec}编码,
+ * 内置了String、基本类型包装类和byte[]的编解码器,其他类型需要两端注册相同的编解码器.
+ * <p>
+ * 主进程只接受同一uid的连接.连接断开后客户端会自动重连,断开期间转发的事件会被丢弃并计数.
+ */
+public final class EventBridge implements PostObserver, Closeable {
+    private static final String TAG = EventBridge.class.getSimpleName();
+    /**
+     * 等待发送的事件上限,超过时丢弃新事件
+     */
+    private static final int MAX_PENDING_EVENTS = 1024;
+    /**
+     * 一帧最多包含的事件数
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+    /**
+     * 一帧的最大字节数,防止读到损坏的数据时分配过大的内存
+     */
+    private static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+    private static final long MIN_RECONNECT_DELAY_MILLIS = 100;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 5000;
+
+    private final EventBus mEventBus;
+    private final String mName;
+    private final boolean mServer;
+    /**
+     * 需要转发的tag
+     */
+    private final Set<String> mForwardTags = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final EventCodecs mCodecs = new EventCodecs();
+    private final BlockingQueue<OutgoingEvent> mOutgoingEvents = new LinkedBlockingQueue<OutgoingEvent>(MAX_PENDING_EVENTS);
+    private final List<Connection> mConnections = new CopyOnWriteArrayList<Connection>();
+
+    private final AtomicLong mSentCount = new AtomicLong();
+    private final AtomicLong mReceivedCount = new AtomicLong();
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mFrameCount = new AtomicLong();
+
+    private volatile boolean mClosed;
+    private LocalServerSocket mServerSocket;
+    private Thread mWriterThread;
+    private Thread mConnectThread;
+
+    private EventBridge(EventBus eventBus, String name, boolean server) {
+        mEventBus = eventBus;
+        mName = name;
+        mServer = server;
+    }
+
+    /**
+     * 在主进程中监听本地socket,等待其他进程连接
+     *
+     * @param name 本地socket的名字,两端需要相同
+     * @return
+     * @throws IOException
+     */
+    public static EventBridge listen(String name) throws IOException {
+        return listen(EventBus.getDefault(), name);
+    }
+
+    static EventBridge listen(EventBus eventBus, String name) throws IOException {
+        EventBridge bridge = new EventBridge(eventBus, name, true);
+        bridge.mServerSocket = new LocalServerSocket(name);
+        bridge.start();
+        return bridge;
+    }
+
+    /**
+     * 在其他进程中连接主进程,连接在后台建立,断开后自动重连
+     *
+     * @param name 本地socket的名字,两端需要相同
+     * @return
+     */
+    public static EventBridge connect(String name) {
+        return connect(EventBus.getDefault(), name);
+    }
+
+    static EventBridge connect(EventBus eventBus, String name) {
+        EventBridge bridge = new EventBridge(eventBus, name, false);
+        bridge.start();
+        return bridge;
+    }
+
+    private void start() {
+        mWriterThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, TAG + "-writer-" + mName);
+        mWriterThread.setDaemon(true);
+        mWriterThread.start();
+        mConnectThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (mServer) {
+                    acceptLoop();
+                } else {
+                    connectLoop();
+                }
+            }
+        }, TAG + (mServer ? "-accept-" : "-connect-") + mName);
+        mConnectThread.setDaemon(true);
+        mConnectThread.start();
+        mEventBus.addPostObserver(this);
+    }
+
+    /**
+     * 转发该tag的事件到其他进程
+     *
+     * @param tag
+     * @return
+     */
+    public EventBridge forward(String tag) {
+        mForwardTags.add(tag);
+        return this;
+    }
+
+    /**
+     * 注册事件类型的编解码器,两个进程需要注册相同的编解码器
+     *
+     * @param eventClass 事件类型,只匹配该类型本身
+     * @param codec
+     * @return
+     */
+    public <T> EventBridge registerCodec(Class<T> eventClass, EventCodec<T> codec) {
+        mCodecs.register(eventClass, codec);
+        return this;
+    }
+
+    /**
+     * @return 是否至少有一个连接
+     */
+    public boolean isConnected() {
+        return !mConnections.isEmpty();
+    }
+
+    /**
+     * @return 已发送的事件数
+     */
+    public long getSentCount() {
+        return mSentCount.get();
+    }
+
+    /**
+     * @return 已接收的事件数
+     */
+    public long getReceivedCount() {
+        return mReceivedCount.get();
+    }
+
+    /**
+     * @return 因为队列已满、没有连接或者没有编解码器而丢弃的事件数
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * @return 已发送的帧数
+     */
+    public long getFrameCount() {
+        return mFrameCount.get();
+    }
+
+    /**
+     * post时调用,需要转发的事件加入发送队列
+     *
+     * @param event
+     * @param tag
+     */
+    @Override
+    public void onPost(Object event, String tag) {
+        forward(event, tag, null);
+    }
+
+    /**
+     * @param event
+     * @param tag
+     * @param source 事件来自的连接,不会再发回该连接
+     */
+    private void forward(Object event, String tag, Connection source) {
+        if (mClosed || tag == null || !mForwardTags.contains(tag)) {
+            return;
+        }
+        if (mCodecs.get(event.getClass()) == null) {
+            Log.w(TAG, "no codec for " + event.getClass().getName() + ", event is not forwarded.");
+            mDroppedCount.incrementAndGet();
+            return;
+        }
+        if (!mOutgoingEvents.offer(new OutgoingEvent(tag, event, source))) {
+            mDroppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 关闭全部连接并停止转发
+     */
+    @Override
+    public void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        mEventBus.removePostObserver(this);
+        mWriterThread.interrupt();
+        mConnectThread.interrupt();
+        if (mServerSocket != null) {
+            closeQuietly(mServerSocket);
+            // 关闭LocalServerSocket不会唤醒阻塞在accept中的线程,连接一次让它退出
+            LocalSocket wakeUp = new LocalSocket();
+            try {
+                wakeUp.connect(new LocalSocketAddress(mName));
+            } catch (IOException ignored) {
+            } finally {
+                closeQuietly(wakeUp);
+            }
+        }
+        for (Connection connection : mConnections) {
+            connection.close();
+        }
+        mConnections.clear();
+    }
+
+    private void writeLoop() {
+        List<OutgoingEvent> batch = new ArrayList<OutgoingEvent>(MAX_BATCH_SIZE);
+        while (!mClosed) {
+            try {
+                batch.add(mOutgoingEvents.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            mOutgoingEvents.drainTo(batch, MAX_BATCH_SIZE - 1);
+            if (mConnections.isEmpty()) {
+                mDroppedCount.addAndGet(batch.size());
+            }
+            for (Connection connection : mConnections) {
+                try {
+                    connection.writeFrame(batch);
+                } catch (IOException e) {
+                    Log.w(TAG, "write to " + mName + " failed, closing the connection.", e);
+                    mConnections.remove(connection);
+                    connection.close();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!mClosed) {
+            LocalSocket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                if (!mClosed) {
+                    Log.e(TAG, "accept on " + mName + " failed.", e);
+                }
+                return;
+            }
+            if (mClosed) {
+                closeQuietly(socket);
+                return;
+            }
+            if (!isSameUid(socket)) {
+                Log.w(TAG, "reject connection from another uid on " + mName);
+                closeQuietly(socket);
+                continue;
+            }
+            final Connection connection;
+            try {
+                connection = new Connection(socket);
+            } catch (IOException e) {
+                closeQuietly(socket);
+                continue;
+            }
+            mConnections.add(connection);
+            Thread readerThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runConnection(connection);
+                }
+            }, TAG + "-reader-" + mName);
+            readerThread.setDaemon(true);
+            readerThread.start();
+        }
+    }
+
+    private void connectLoop() {
+        long delay = MIN_RECONNECT_DELAY_MILLIS;
+        while (!mClosed) {
+            LocalSocket socket = new LocalSocket();
+            try {
+                socket.connect(new LocalSocketAddress(mName));
+                Connection connection = new Connection(socket);
+                mConnections.add(connection);
+                delay = MIN_RECONNECT_DELAY_MILLIS;
+                runConnection(connection);
+            } catch (IOException e) {
+                closeQuietly(socket);
+            }
+            if (mClosed) {
+                return;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * 读取连接上的事件直到连接断开
+     *
+     * @param connection
+     */
+    private void runConnection(Connection connection) {
+        try {
+            connection.readLoop();
+        } catch (IOException e) {
+            if (!mClosed) {
+                Log.w(TAG, "connection on " + mName + " closed: " + e);
+            }
+        } finally {
+            mConnections.remove(connection);
+            connection.close();
+        }
+    }
+
+    /**
+     * 在接收线程中投递收到的事件
+     *
+     * @param source
+     * @param tag
+     * @param event
+     */
+    private void onReceive(Connection source, String tag, Object event) {
+        mReceivedCount.incrementAndGet();
+        mEventBus.postFromBridge(event, tag);
+        // 主进程把事件继续转发给其他连接
+        if (mServer && mConnections.size() > 1) {
+            forward(event, tag, source);
+        }
+    }
+
+    private static boolean isSameUid(LocalSocket socket) {
+        try {
+            return socket.getPeerCredentials().getUid() == Process.myUid();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Object closeable) {
+        try {
+            if (closeable instanceof LocalSocket) {
+                ((LocalSocket) closeable).close();
+            } else if (closeable instanceof LocalServerSocket) {
+                ((LocalServerSocket) closeable).close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * 等待发送的事件
+     */
+    private static final class OutgoingEvent {
+        final String tag;
+        final Object event;
+        final Connection source;
+
+        OutgoingEvent(String tag, Object event, Connection source) {
+            this.tag = tag;
+            this.event = event;
+            this.source = source;
+        }
+    }
+
+    /**
+     * 一个长连接,写方法只在发送线程中调用,读方法只在该连接的接收线程中调用
+     */
+    private final class Connection {
+        final LocalSocket mSocket;
+        final DataInputStream mInput;
+        final DataOutputStream mOutput;
+        /**
+         * 发送方向的字符串表
+         */
+        final StringTable mWriteStrings = new StringTable();
+        /**
+         * 接收方向的字符串表
+         */
+        final StringTable mReadStrings = new StringTable();
+        final ByteArrayOutputStream mBodyBuffer = new ByteArrayOutputStream();
+        final DataOutputStream mBodyOutput = new DataOutputStream(mBodyBuffer);
+        final ByteArrayOutputStream mPayloadBuffer = new ByteArrayOutputStream();
+        final DataOutputStream mPayloadOutput = new DataOutputStream(mPayloadBuffer);
+
+        Connection(LocalSocket socket) throws IOException {
+            mSocket = socket;
+            mInput = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            mOutput = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void writeFrame(List<OutgoingEvent> batch) throws IOException {
+            mBodyBuffer.reset();
+            int count = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                OutgoingEvent outgoing = batch.get(i);
+                if (outgoing.source == this) {
+                    continue;
+                }
+                // 先编码事件内容,编码失败时跳过该事件,不影响字符串表
+                EventCodec<Object> codec = mCodecs.get(outgoing.event.getClass());
+                mPayloadBuffer.reset();
+                try {
+                    codec.encode(outgoing.event, mPayloadOutput);
+                    mPayloadOutput.flush();
+                } catch (Exception e) {
+                    Log.w(TAG, "encode " + outgoing.event.getClass().getName() + " failed.", e);
+                    mDroppedCount.incrementAndGet();
+                    continue;
+                }
+                mWriteStrings.write(mBodyOutput, outgoing.tag);
+                mWriteStrings.write(mBodyOutput, outgoing.event.getClass().getName());
+                StringTable.writeVarint(mBodyOutput, mPayloadBuffer.size());
+                mPayloadBuffer.writeTo(mBodyOutput);
+                count++;
+            }
+            if (count == 0) {
+                return;
+            }
+            mBodyOutput.flush();
+            StringTable.writeVarint(mOutput, mBodyBuffer.size());
+            mBodyBuffer.writeTo(mOutput);
+            mOutput.flush();
+            mSentCount.addAndGet(count);
+            mFrameCount.incrementAndGet();
+        }
+
+        void readLoop() throws IOException {
+            while (!mClosed) {
+                int length = StringTable.readVarint(mInput);
+                if (length < 0 || length > MAX_FRAME_LENGTH) {
+                    throw new IOException("invalid frame length " + length);
+                }
+                byte[] body = new byte[length];
+                mInput.readFully(body);
+                ByteArrayInputStream bodyInput = new ByteArrayInputStream(body);
+                DataInputStream in = new DataInputStream(bodyInput);
+                while (bodyInput.available() > 0) {
+                    String tag = mReadStrings.read(in);
+                    String typeName = mReadStrings.read(in);
+                    int payloadLength = StringTable.readVarint(in);
+                    EventCodec<?> codec = mCodecs.get(typeName);
+                    if (codec == null) {
+                        Log.w(TAG, "no codec for " + typeName + ", event is skipped.");
+                        in.skipBytes(payloadLength);
+                        continue;
+                    }
+                    int available = bodyInput.available();
+                    Object event = decode(codec, typeName, in);
+                    if (available - bodyInput.available() != payloadLength) {
+                        throw new IOException("codec of " + typeName + " does not match the sender's codec");
+                    }
+                    onReceive(this, tag, event);
+                }
+            }
+        }
+
+        /**
+         * 解码一个事件,编解码器抛出的运行时异常和返回的null都转换为IOException,只断开当前连接
+         *
+         * @param codec
+         * @param typeName
+         * @param in
+         * @return
+         * @throws IOException
+         */
+        private Object decode(EventCodec<?> codec, String typeName, DataInputStream in) throws IOException {
+            Object event;
+            try {
+                event = codec.decode(in);
+            } catch (RuntimeException e) {
+                throw new IOException("codec of " + typeName + " failed to decode", e);
+            }
+            if (event == null) {
+                throw new IOException("codec of " + typeName + " decoded null");
+            }
+            return event;
+        }
+
+        void close() {
+            closeQuietly(mSocket);
+        }
+    }
+}
@@ -17,19 +17,32 @@
 package com.sunnybear.library.eventbus;
 
 
+import android.app.Activity;
+import android.app.Fragment;
+import android.os.Build;
+
 import com.sunnybear.library.eventbus.handler.AsyncEventHandler;
+import com.sunnybear.library.eventbus.handler.BatchEventHandler;
 import com.sunnybear.library.eventbus.handler.DefaultEventHandler;
 import com.sunnybear.library.eventbus.handler.EventHandler;
+import com.sunnybear.library.eventbus.handler.ExecutorEventHandler;
 import com.sunnybear.library.eventbus.handler.UIThreadEventHandler;
 import com.sunnybear.library.eventbus.matchpolicy.DefaultMatchPolicy;
 import com.sunnybear.library.eventbus.matchpolicy.MatchPolicy;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * <p>
@@ -71,17 +84,61 @@ final class EventBus {
     /**
      * EventType-Subcriptions map
      */
-    private final Map<EventType, CopyOnWriteArrayList<Subscription>> mSubcriberMap = new ConcurrentHashMap<EventType, CopyOnWriteArrayList<Subscription>>();
+    private final ConcurrentMap<EventType, CopyOnWriteArrayList<Subscription>> mSubcriberMap = new ConcurrentHashMap<EventType, CopyOnWriteArrayList<Subscription>>();
+
+    /**
+     * Subscriber-EventTypes map, the reverse index of mSubcriberMap
+     */
+    private final Map<Object, List<EventType>> mSubscriberEventTypes = new ConcurrentHashMap<Object, List<EventType>>();
+
+    /**
+     * 弱引用订阅者的反向索引,订阅者被回收后对应的条目会自动消失
+     */
+    private final Map<Object, List<EventType>> mWeakSubscriberEventTypes = Collections
+            .synchronizedMap(new WeakHashMap<Object, List<EventType>>());
+
+    /**
+     * 粘性事件的最大数量
+     */
+    private static final int MAX_STICKY_EVENTS = 64;
+
+    /**
+     * EventType-sticky event map, only the latest event of each EventType is kept.
+     * 超过上限时移除最早post的粘性事件
+     */
+    private final Map<EventType, Object> mStickyEvents = new LinkedHashMap<EventType, Object>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<EventType, Object> eldest) {
+            return size() > MAX_STICKY_EVENTS;
+        }
+    };
+
+    /**
+     * 按照优先级从高到低排列订阅
+     */
+    private static final Comparator<Subscription> PRIORITY_COMPARATOR = new Comparator<Subscription>() {
+        @Override
+        public int compare(Subscription lhs, Subscription rhs) {
+            return lhs.priority < rhs.priority ? 1 : (lhs.priority == rhs.priority ? 0 : -1);
+        }
+    };
 
     /**
-     * the thread local event queue, every single thread has it's own queue.
+     * the thread local posting state, every single thread reuses it's own state.
      */
-    ThreadLocal<Queue<EventType>> mLocalEvents = new ThreadLocal<Queue<EventType>>() {
-        protected Queue<EventType> initialValue() {
-            return new ConcurrentLinkedQueue<EventType>();
+    ThreadLocal<PostingState> mPostingState = new ThreadLocal<PostingState>() {
+        protected PostingState initialValue() {
+            return new PostingState();
         };
     };
 
+    private static final PostObserver[] NO_OBSERVERS = new PostObserver[0];
+
+    /**
+     * 跨进程转发和录制事件的观察者,没有观察者时post只多一次volatile读
+     */
+    private volatile PostObserver[] mPostObservers = NO_OBSERVERS;
+
     /**
      * the event dispatcher
      */
@@ -91,7 +148,8 @@ final class EventBus {
      * the subscriber method hunter, find all of the subscriber's methods
      * annotated with @Subcriber
      */
-    SubsciberMethodHunter mMethodHunter = new SubsciberMethodHunter(mSubcriberMap);
+    SubsciberMethodHunter mMethodHunter = new SubsciberMethodHunter(mSubcriberMap, mSubscriberEventTypes,
+            mWeakSubscriberEventTypes);
 
     /**
      * The Default EventBus instance
@@ -136,12 +194,73 @@ final class EventBus {
      * @param subscriber the target subscriber
      */
     public void register(Object subscriber) {
+        register(subscriber, false);
+    }
+
+    /**
+     * 注册订阅者, weak为true时EventBus只持有订阅者的弱引用,订阅者被回收后对应的订阅会在之后的post中被移除.
+     * 弱引用只是防止忘记注销导致的泄露,在订阅者被回收前它仍然会收到事件,因此仍然应该在生命周期结束时注销.
+     *
+     * @param subscriber the target subscriber
+     * @param weak 是否只持有订阅者的弱引用
+     */
+    public void register(Object subscriber, boolean weak) {
+        register(subscriber, weak, null);
+    }
+
+    /**
+     * 注册订阅者,订阅者的ThreadMode.ASYNC订阅函数全部执行在指定的执行器上,并且按post顺序串行执行,
+     * 例如单线程的数据库写入;不同订阅者之间仍然并行.已经注册的订阅者再次注册不会改变执行器
+     *
+     * @param subscriber the target subscriber
+     * @param executor ThreadMode.ASYNC事件的执行器
+     */
+    public void register(Object subscriber, Executor executor) {
+        register(subscriber, false, executor);
+    }
+
+    /**
+     * @param subscriber the target subscriber
+     * @param weak 是否只持有订阅者的弱引用
+     * @param executor ThreadMode.ASYNC事件的执行器,为null时使用异步事件处理器
+     */
+    public void register(Object subscriber, boolean weak, Executor executor) {
         if (subscriber == null) {
             return;
         }
 
-        synchronized (this) {
-            mMethodHunter.findSubcribeMethods(subscriber);
+        // 注册不需要全局锁,SubsciberMethodHunter只锁住涉及的EventType的订阅列表.
+        // 先修改订阅列表再使缓存失效,post线程看到的总是完整的列表快照
+        List<Subscription> added = mMethodHunter.findSubcribeMethods(subscriber, weak,
+                executor == null ? null : new SerialExecutor(executor));
+        mDispatcher.invalidateCache();
+        postStickyEvents(added);
+    }
+
+    /**
+     * 将已有的粘性事件投递给本次新增的sticky订阅,重复注册时已有的订阅不会再次收到粘性事件
+     *
+     * @param added 本次注册新增的订阅
+     */
+    private void postStickyEvents(List<Subscription> added) {
+        List<Subscription> stickySubscriptions = new ArrayList<Subscription>();
+        for (Subscription subscription : added) {
+            if (subscription.sticky) {
+                stickySubscriptions.add(subscription);
+            }
+        }
+        if (stickySubscriptions.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<EventType, Object>> stickyEvents;
+        synchronized (mStickyEvents) {
+            if (mStickyEvents.isEmpty()) {
+                return;
+            }
+            stickyEvents = new ArrayList<Map.Entry<EventType, Object>>(mStickyEvents.entrySet());
+        }
+        for (Map.Entry<EventType, Object> stickyEvent : stickyEvents) {
+            mDispatcher.deliveryStickyEvent(stickyEvent.getKey(), stickyEvent.getValue(), stickySubscriptions);
         }
     }
 
@@ -153,9 +272,63 @@ final class EventBus {
             return;
         }
 
-        synchronized (this) {
-            mMethodHunter.removeMethodsFromMap(subscriber);
+        mMethodHunter.removeMethodsFromMap(subscriber);
+        mDispatcher.invalidateCache();
+    }
+
+    /**
+     * 移除订阅者已经被回收的弱引用订阅
+     *
+     * @param subscriptions
+     */
+    private void removeDeadSubscriptions(Subscription[] subscriptions) {
+        if (mMethodHunter.removeDeadSubscriptions(subscriptions)) {
+            mDispatcher.invalidateCache();
+        }
+    }
+
+    /**
+     * 泄露诊断,返回仍然注册在EventBus中但是生命周期已经结束的订阅者,
+     * 例如已经destroy的Activity、已经detach的Fragment以及实现了{@see SubscriberLifecycle}并且生命周期已结束的对象.
+     *
+     * @return 生命周期已经结束但是没有注销的订阅者
+     */
+    public List<Object> getLeakedSubscribers() {
+        List<Object> leakedSubscribers = new ArrayList<Object>();
+        for (Object subscriber : mMethodHunter.getSubscribers()) {
+            if (isLifecycleEnded(subscriber)) {
+                leakedSubscribers.add(subscriber);
+            }
+        }
+        return leakedSubscribers;
+    }
+
+    /**
+     * @param subscriber
+     * @return 订阅者所属的生命周期是否已经结束
+     */
+    private static boolean isLifecycleEnded(Object subscriber) {
+        if (subscriber instanceof SubscriberLifecycle) {
+            return ((SubscriberLifecycle) subscriber).isLifecycleEnded();
         }
+        if (subscriber instanceof Activity) {
+            return isDestroyed((Activity) subscriber);
+        }
+        if (subscriber instanceof Fragment) {
+            Fragment fragment = (Fragment) subscriber;
+            return fragment.getActivity() == null || fragment.isDetached();
+        }
+        return false;
+    }
+
+    /**
+     * 正在结束的Activity还没有执行onDestroy,不能视为生命周期结束;API 17以下无法判断,始终返回false
+     *
+     * @param activity
+     * @return Activity是否已经destroy
+     */
+    static boolean isDestroyed(Activity activity) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 && activity.isDestroyed();
     }
 
     /**
@@ -174,8 +347,145 @@ final class EventBus {
      * @param tag 事件的tag, 类似于BroadcastReceiver的action
      */
     public void post(Object event, String tag) {
-        mLocalEvents.get().offer(new EventType(event.getClass(), tag));
-        mDispatcher.dispatchEvents(event);
+        PostObserver[] observers = mPostObservers;
+        for (PostObserver observer : observers) {
+            observer.onPost(event, tag);
+        }
+        postLocal(event, tag);
+    }
+
+    /**
+     * 投递从其他进程收到的事件,不会再转发
+     *
+     * @param event
+     * @param tag
+     */
+    void postFromBridge(Object event, String tag) {
+        postLocal(event, tag);
+    }
+
+    private void postLocal(Object event, String tag) {
+        // 复用当前线程的查找key,已经解析过的事件类型post时不需要创建任何对象
+        PostingState postingState = mPostingState.get();
+        EventType lookupKey = postingState.lookupKey;
+        lookupKey.paramClass = event.getClass();
+        lookupKey.tag = tag;
+        mDispatcher.deliveryEvent(postingState, lookupKey, event);
+    }
+
+    /**
+     * post a batch of events
+     *
+     * @param events
+     */
+    public void postAll(Collection<?> events) {
+        postAll(events, EventType.DEFAULT_TAG);
+    }
+
+    /**
+     * 批量发布事件,每种事件类型只查找一次订阅,并且把同一个订阅的全部事件一次交给事件处理器,
+     * 例如UI线程的订阅函数只需要一个消息就能处理整批事件.
+     * <p>
+     * 同一类型的事件按照集合中的顺序投递;不同类型的事件按照类型第一次出现的顺序逐类投递.
+     * ThreadMode.POST的订阅函数仍然逐个事件投递,可以通过{@see #cancelEventDelivery(Object)}取消单个事件.
+     *
+     * @param events 要发布的事件
+     * @param tag 事件的tag
+     */
+    public void postAll(Collection<?> events, String tag) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        PostObserver[] observers = mPostObservers;
+        // 按照事件类型分组
+        Map<Class<?>, List<Object>> eventGroups = new LinkedHashMap<Class<?>, List<Object>>();
+        for (Object event : events) {
+            for (PostObserver observer : observers) {
+                observer.onPost(event, tag);
+            }
+            List<Object> eventGroup = eventGroups.get(event.getClass());
+            if (eventGroup == null) {
+                eventGroup = new ArrayList<Object>();
+                eventGroups.put(event.getClass(), eventGroup);
+            }
+            eventGroup.add(event);
+        }
+        PostingState postingState = mPostingState.get();
+        for (Map.Entry<Class<?>, List<Object>> eventGroup : eventGroups.entrySet()) {
+            // 订阅函数中可能再次post,每组都重新设置查找key
+            EventType lookupKey = postingState.lookupKey;
+            lookupKey.paramClass = eventGroup.getKey();
+            lookupKey.tag = tag;
+            mDispatcher.deliveryEvents(postingState, lookupKey, eventGroup.getValue());
+        }
+    }
+
+    /**
+     * 取消事件向后续(优先级更低)订阅函数的投递,只能在ThreadMode.POST的订阅函数中对正在投递的事件调用
+     *
+     * @param event 正在投递的事件
+     */
+    public void cancelEventDelivery(Object event) {
+        PostingState postingState = mPostingState.get();
+        if (postingState.event == null || postingState.event != event) {
+            throw new IllegalStateException("cancelEventDelivery can only be called on the event being delivered "
+                    + "from a subscriber method on the posting thread.");
+        }
+        if (postingState.subscription == null || postingState.subscription.threadMode != ThreadMode.POST) {
+            throw new IllegalStateException("only ThreadMode.POST subscriber methods can cancel event delivery.");
+        }
+        postingState.canceled = true;
+    }
+
+    /**
+     * post a sticky event
+     *
+     * @param event
+     */
+    public void postSticky(Object event) {
+        postSticky(event, EventType.DEFAULT_TAG);
+    }
+
+    /**
+     * 发布粘性事件,每个EventType保存最新的一个事件,之后注册的sticky订阅函数会在register时立即收到该事件
+     *
+     * @param event 要发布的事件
+     * @param tag 事件的tag
+     */
+    public void postSticky(Object event, String tag) {
+        synchronized (mStickyEvents) {
+            EventType eventType = new EventType(event.getClass(), tag);
+            // 先移除再放入,使其成为最新的粘性事件
+            mStickyEvents.remove(eventType);
+            mStickyEvents.put(eventType, event);
+        }
+        post(event, tag);
+    }
+
+    /**
+     * 获取粘性事件
+     *
+     * @param eventClass 事件类型
+     * @param tag 事件的tag
+     * @return 最新的粘性事件, 没有时返回null
+     */
+    public <T> T getStickyEvent(Class<T> eventClass, String tag) {
+        synchronized (mStickyEvents) {
+            return eventClass.cast(mStickyEvents.get(new EventType(eventClass, tag)));
+        }
+    }
+
+    /**
+     * 移除粘性事件
+     *
+     * @param eventClass 事件类型
+     * @param tag 事件的tag
+     * @return 被移除的粘性事件, 没有时返回null
+     */
+    public <T> T removeSticky(Class<T> eventClass, String tag) {
+        synchronized (mStickyEvents) {
+            return eventClass.cast(mStickyEvents.remove(new EventType(eventClass, tag)));
+        }
     }
 
     /**
@@ -185,6 +495,7 @@ final class EventBus {
      */
     public void setMatchPolicy(MatchPolicy policy) {
         mDispatcher.mMatchPolicy = policy;
+        mDispatcher.invalidateCache();
     }
 
     /**
@@ -215,29 +526,56 @@ final class EventBus {
     }
 
     /**
-     * 返回订阅map
-     * 
+     * 添加post观察者,见{@see EventBridge}和{@see EventRecorder}
+     *
+     * @param observer
+     */
+    synchronized void addPostObserver(PostObserver observer) {
+        PostObserver[] observers = Arrays.copyOf(mPostObservers, mPostObservers.length + 1);
+        observers[observers.length - 1] = observer;
+        mPostObservers = observers;
+    }
+
+    /**
+     * 移除post观察者
+     *
+     * @param observer
+     */
+    synchronized void removePostObserver(PostObserver observer) {
+        List<PostObserver> observers = new ArrayList<PostObserver>(Arrays.asList(mPostObservers));
+        observers.remove(observer);
+        mPostObservers = observers.toArray(new PostObserver[observers.size()]);
+    }
+
+    /**
+     * 返回运行指标,通过{@see EventBusMetrics#setEnabled(boolean)}开启统计
+     *
      * @return
      */
-    public Map<EventType, CopyOnWriteArrayList<Subscription>> getSubscriberMap() {
-        return mSubcriberMap;
+    public EventBusMetrics getMetrics() {
+        return EventBusMetrics.getDefault();
     }
 
     /**
-     * 获取等待处理的事件队列
+     * 返回订阅map
      * 
      * @return
      */
-    public Queue<EventType> getEventQueue() {
-        return mLocalEvents.get();
+    public Map<EventType, CopyOnWriteArrayList<Subscription>> getSubscriberMap() {
+        return mSubcriberMap;
     }
 
     /**
      * clear the events and subcribers map
      */
-    public synchronized void clear() {
-        mLocalEvents.get().clear();
+    public void clear() {
         mSubcriberMap.clear();
+        mSubscriberEventTypes.clear();
+        mWeakSubscriberEventTypes.clear();
+        synchronized (mStickyEvents) {
+            mStickyEvents.clear();
+        }
+        mDispatcher.invalidateCache();
     }
 
     /**
@@ -249,6 +587,28 @@ final class EventBus {
         return mDesc;
     }
 
+    /**
+     * 每个线程post时复用的状态
+     */
+    static final class PostingState {
+        /**
+         * 查找订阅缓存的key,每次post时重新设置事件类型和tag
+         */
+        final EventType lookupKey = new EventType(null, null);
+        /**
+         * 正在投递的事件
+         */
+        Object event;
+        /**
+         * 正在执行的订阅
+         */
+        Subscription subscription;
+        /**
+         * 正在投递的事件是否已被取消
+         */
+        boolean canceled;
+    }
+
     /**
      * 事件分发器
      * 
@@ -272,69 +632,233 @@ final class EventBus {
         EventHandler mAsyncEventHandler = new AsyncEventHandler();
 
         /**
-         * 缓存一个事件类型对应的可EventType列表
+         * 在订阅者指定的执行器中执行ThreadMode.ASYNC订阅方法
          */
-        private Map<EventType, List<EventType>> mCacheEventTypes = new ConcurrentHashMap<EventType, List<EventType>>();
+        EventHandler mExecutorEventHandler = new ExecutorEventHandler();
+
+        /**
+         * 缓存一个事件类型(事件的Class和tag)匹配到的全部订阅,注册、注销或者修改匹配策略时整体失效
+         */
+        private volatile Map<EventType, Subscription[]> mCacheSubscriptions = new ConcurrentHashMap<EventType, Subscription[]>();
         /**
          * 事件匹配策略,根据策略来查找对应的EventType集合
          */
         MatchPolicy mMatchPolicy = new DefaultMatchPolicy();
 
         /**
-         * @param aEvent
+         * 使缓存的订阅失效,订阅关系发生变化后调用.
+         * 先修改订阅map再替换缓存,拿到新缓存的线程一定能看到修改后的订阅map
          */
-        void dispatchEvents(Object aEvent) {
-            Queue<EventType> eventsQueue = mLocalEvents.get();
-            while (eventsQueue.size() > 0) {
-                deliveryEvent(eventsQueue.poll(), aEvent);
-            }
+        void invalidateCache() {
+            mCacheSubscriptions = new ConcurrentHashMap<EventType, Subscription[]>();
         }
 
         /**
-         * 根据aEvent查找到所有匹配的集合,然后处理事件
+         * 根据aEvent查找到所有匹配的订阅,然后按照优先级处理事件
          * 
-         * @param type
+         * @param postingState 当前线程的post状态
+         * @param type 查找缓存用的key,可能是线程复用的对象,不能保存
          * @param aEvent
          */
-        private void deliveryEvent(EventType type, Object aEvent) {
-            Class<?> eventClass = aEvent.getClass();
-            List<EventType> eventTypes = null;
-            // 如果有缓存则直接从缓存中取
-            if (mCacheEventTypes.containsKey(eventClass)) {
-                eventTypes = mCacheEventTypes.get(type);
-            } else {
-                eventTypes = mMatchPolicy.findMatchEventTypes(type, aEvent);
-                mCacheEventTypes.put(type, eventTypes);
+        void deliveryEvent(PostingState postingState, EventType type, Object aEvent) {
+            Subscription[] subscriptions = getSubscriptions(type, aEvent);
+            if (EventBusMetrics.isEnabled()) {
+                EventBusMetrics.getDefault().recordPost(type, subscriptions.length);
             }
+            boolean hasDeadSubscription = false;
+            // 订阅函数中可能再次post,保存外层的投递状态
+            Object outerEvent = postingState.event;
+            Subscription outerSubscription = postingState.subscription;
+            boolean outerCanceled = postingState.canceled;
+            postingState.event = aEvent;
+            postingState.canceled = false;
+            try {
+                for (int i = 0; i < subscriptions.length; i++) {
+                    Subscription subscription = subscriptions[i];
+                    if (subscription.isWeak() && subscription.getSubscriber() == null) {
+                        // 弱引用的订阅者已经被回收,分发完成后再移除
+                        hasDeadSubscription = true;
+                        continue;
+                    }
+                    postingState.subscription = subscription;
+                    EventHandler eventHandler = getEventHandler(subscription);
+                    // 处理事件
+                    eventHandler.handleEvent(subscription, aEvent);
+                    if (postingState.canceled) {
+                        break;
+                    }
+                }
+            } finally {
+                postingState.event = outerEvent;
+                postingState.subscription = outerSubscription;
+                postingState.canceled = outerCanceled;
+            }
+            if (hasDeadSubscription) {
+                removeDeadSubscriptions(subscriptions);
+            }
+        }
 
-            for (EventType eventType : eventTypes) {
-                handleEvent(eventType, aEvent);
+        /**
+         * 投递一批同类型的事件.先将事件逐个投递给ThreadMode.POST的订阅函数并记录被取消的位置,
+         * 再把每个其他订阅应该收到的事件一次交给对应的事件处理器
+         *
+         * @param postingState 当前线程的post状态
+         * @param type 查找缓存用的key,可能是线程复用的对象,不能保存
+         * @param events 同一类型的事件
+         */
+        void deliveryEvents(PostingState postingState, EventType type, List<?> events) {
+            Subscription[] subscriptions = getSubscriptions(type, events.get(0));
+            if (EventBusMetrics.isEnabled()) {
+                for (int i = 0; i < events.size(); i++) {
+                    EventBusMetrics.getDefault().recordPost(type, subscriptions.length);
+                }
+            }
+            boolean hasDeadSubscription = false;
+            boolean hasPostSubscription = false;
+            for (int i = 0; i < subscriptions.length; i++) {
+                if (subscriptions[i].threadMode == ThreadMode.POST) {
+                    hasPostSubscription = true;
+                    break;
+                }
+            }
+            // 每个事件被取消时所在的订阅位置,没有事件被取消时为null
+            int[] cancelIndexes = null;
+            if (hasPostSubscription) {
+                Object outerEvent = postingState.event;
+                Subscription outerSubscription = postingState.subscription;
+                boolean outerCanceled = postingState.canceled;
+                try {
+                    for (int e = 0; e < events.size(); e++) {
+                        Object event = events.get(e);
+                        postingState.event = event;
+                        postingState.canceled = false;
+                        for (int i = 0; i < subscriptions.length; i++) {
+                            Subscription subscription = subscriptions[i];
+                            if (subscription.threadMode != ThreadMode.POST) {
+                                continue;
+                            }
+                            if (subscription.isWeak() && subscription.getSubscriber() == null) {
+                                hasDeadSubscription = true;
+                                continue;
+                            }
+                            postingState.subscription = subscription;
+                            mPostThreadHandler.handleEvent(subscription, event);
+                            if (postingState.canceled) {
+                                if (cancelIndexes == null) {
+                                    cancelIndexes = new int[events.size()];
+                                    Arrays.fill(cancelIndexes, subscriptions.length);
+                                }
+                                cancelIndexes[e] = i;
+                                break;
+                            }
+                        }
+                    }
+                } finally {
+                    postingState.event = outerEvent;
+                    postingState.subscription = outerSubscription;
+                    postingState.canceled = outerCanceled;
+                }
+            }
+            for (int i = 0; i < subscriptions.length; i++) {
+                Subscription subscription = subscriptions[i];
+                if (subscription.threadMode == ThreadMode.POST) {
+                    continue;
+                }
+                if (subscription.isWeak() && subscription.getSubscriber() == null) {
+                    hasDeadSubscription = true;
+                    continue;
+                }
+                List<?> batch = events;
+                if (cancelIndexes != null) {
+                    // 去掉在该订阅之前被取消的事件
+                    List<Object> uncanceledEvents = new ArrayList<Object>(events.size());
+                    for (int e = 0; e < events.size(); e++) {
+                        if (cancelIndexes[e] > i) {
+                            uncanceledEvents.add(events.get(e));
+                        }
+                    }
+                    batch = uncanceledEvents;
+                }
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                EventHandler eventHandler = getEventHandler(subscription);
+                if (eventHandler instanceof BatchEventHandler) {
+                    ((BatchEventHandler) eventHandler).handleEvents(subscription, batch);
+                } else {
+                    for (int e = 0; e < batch.size(); e++) {
+                        eventHandler.handleEvent(subscription, batch.get(e));
+                    }
+                }
+            }
+            if (hasDeadSubscription) {
+                removeDeadSubscriptions(subscriptions);
             }
         }
 
         /**
-         * 处理单个事件
-         * 
-         * @param eventType
+         * 只将粘性事件投递给指定的sticky订阅
+         *
+         * @param type
          * @param aEvent
+         * @param stickySubscriptions 新注册的sticky订阅
          */
-        private void handleEvent(EventType eventType, Object aEvent) {
-            List<Subscription> subscriptions = mSubcriberMap.get(eventType);
+        void deliveryStickyEvent(EventType type, Object aEvent, List<Subscription> stickySubscriptions) {
+            Subscription[] subscriptions = getSubscriptions(type, aEvent);
+            for (int i = 0; i < subscriptions.length; i++) {
+                Subscription subscription = subscriptions[i];
+                if (subscription.sticky && stickySubscriptions.contains(subscription)) {
+                    getEventHandler(subscription).handleEvent(subscription, aEvent);
+                }
+            }
+        }
+
+        /**
+         * 获取事件匹配的全部订阅,如果有缓存则直接从缓存中取
+         *
+         * @param type 查找缓存用的key,可能是线程复用的对象,不能保存
+         * @param aEvent
+         * @return
+         */
+        private Subscription[] getSubscriptions(EventType type, Object aEvent) {
+            Map<EventType, Subscription[]> cacheSubscriptions = mCacheSubscriptions;
+            Subscription[] subscriptions = cacheSubscriptions.get(type);
             if (subscriptions == null) {
-                return;
+                EventType eventType = new EventType(type.paramClass, type.tag);
+                subscriptions = findSubscriptions(eventType, aEvent);
+                cacheSubscriptions.put(eventType, subscriptions);
             }
+            return subscriptions;
+        }
 
-            for (Subscription subscription : subscriptions) {
-                final ThreadMode mode = subscription.threadMode;
-                EventHandler eventHandler = getEventHandler(mode);
-                // 处理事件
-                eventHandler.handleEvent(subscription, aEvent);
+        /**
+         * 根据匹配策略查找事件对应的全部订阅,按照优先级从高到低排列
+         *
+         * @param type
+         * @param aEvent
+         * @return
+         */
+        private Subscription[] findSubscriptions(EventType type, Object aEvent) {
+            List<Subscription> result = new ArrayList<Subscription>();
+            int matchCount = 0;
+            for (EventType eventType : mMatchPolicy.findMatchEventTypes(type, aEvent)) {
+                List<Subscription> subscriptions = mSubcriberMap.get(eventType);
+                if (subscriptions != null) {
+                    result.addAll(subscriptions);
+                    matchCount++;
+                }
+            }
+            // 每个订阅列表自身已经有序,匹配到多个列表时需要合并排序,排序是稳定的
+            if (matchCount > 1) {
+                Collections.sort(result, PRIORITY_COMPARATOR);
             }
+            return result.toArray(new Subscription[result.size()]);
         }
 
-        private EventHandler getEventHandler(ThreadMode mode) {
+        private EventHandler getEventHandler(Subscription subscription) {
+            ThreadMode mode = subscription.threadMode;
             if (mode == ThreadMode.ASYNC) {
-                return mAsyncEventHandler;
+                return subscription.executor != null ? mExecutorEventHandler : mAsyncEventHandler;
             }
 
             if (mode == ThreadMode.POST) {
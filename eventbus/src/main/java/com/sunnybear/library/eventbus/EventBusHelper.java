@@ -1,5 +1,16 @@
 package com.sunnybear.library.eventbus;
 
+import android.app.Activity;
+
+import com.sunnybear.library.eventbus.handler.EventHandler;
+import com.sunnybear.library.eventbus.matchpolicy.MatchPolicy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 /**
  * 事件总线帮助
  * Created by guchenkai on 2015/11/16.
@@ -11,6 +22,22 @@ public final class EventBusHelper {
         eventBus.register(subscriber);
     }
 
+    /**
+     * @param subscriber 订阅者
+     * @param weak       是否只持有订阅者的弱引用,订阅者被回收后订阅会被自动移除
+     */
+    public static void register(Object subscriber, boolean weak) {
+        eventBus.register(subscriber, weak);
+    }
+
+    /**
+     * @param subscriber 订阅者
+     * @param executor   订阅者的ThreadMode.ASYNC订阅函数串行执行在该执行器上
+     */
+    public static void register(Object subscriber, Executor executor) {
+        eventBus.register(subscriber, executor);
+    }
+
     public static void unregister(Object subscriber) {
         eventBus.unregister(subscriber);
     }
@@ -18,4 +45,132 @@ public final class EventBusHelper {
     public static void post(Object target, String tag) {
         eventBus.post(target, tag);
     }
+
+    /**
+     * 批量发布事件,每种事件类型只查找一次订阅,UI线程的订阅函数只需要一个消息就能处理整批事件
+     *
+     * @param events 要发布的事件
+     * @param tag    事件的tag
+     */
+    public static void postAll(Collection<?> events, String tag) {
+        eventBus.postAll(events, tag);
+    }
+
+    /**
+     * 在ThreadMode.POST的订阅函数中取消当前事件向优先级更低的订阅函数的投递
+     *
+     * @param event 正在投递的事件
+     */
+    public static void cancelEventDelivery(Object event) {
+        eventBus.cancelEventDelivery(event);
+    }
+
+    public static void postSticky(Object target, String tag) {
+        eventBus.postSticky(target, tag);
+    }
+
+    public static <T> T getStickyEvent(Class<T> eventClass, String tag) {
+        return eventBus.getStickyEvent(eventClass, tag);
+    }
+
+    public static <T> T removeSticky(Class<T> eventClass, String tag) {
+        return eventBus.removeSticky(eventClass, tag);
+    }
+
+    /**
+     * 设置订阅函数匹配策略,例如{@see com.sunnybear.library.eventbus.matchpolicy.HierarchyMatchPolicy}
+     *
+     * @param policy 匹配策略
+     */
+    public static void setMatchPolicy(MatchPolicy policy) {
+        eventBus.setMatchPolicy(policy);
+    }
+
+    /**
+     * 设置ThreadMode.ASYNC订阅函数的事件处理器,例如{@see com.sunnybear.library.eventbus.handler.ThreadPoolEventHandler}
+     *
+     * @param handler 事件处理器
+     */
+    public static void setAsyncEventHandler(EventHandler handler) {
+        eventBus.setAsyncEventHandler(handler);
+    }
+
+    /**
+     * 开启或关闭运行指标统计,关闭时几乎没有开销
+     *
+     * @param enabled
+     */
+    public static void setMetricsEnabled(boolean enabled) {
+        eventBus.getMetrics().setEnabled(enabled);
+    }
+
+    /**
+     * @return 运行指标, 可以查询或者导出到文件
+     */
+    public static EventBusMetrics getMetrics() {
+        return eventBus.getMetrics();
+    }
+
+    /**
+     * 泄露诊断,返回生命周期已经结束但是仍然注册的订阅者
+     *
+     * @return 泄露的订阅者
+     */
+    public static List<Object> getLeakedSubscribers() {
+        return eventBus.getLeakedSubscribers();
+    }
+
+    /**
+     * 供{@see SubscriberLifecycle}的实现判断所属的Activity是否已经destroy,API 17以下始终返回false
+     *
+     * @param activity Activity
+     * @return Activity是否已经destroy
+     */
+    public static boolean isDestroyed(Activity activity) {
+        return EventBus.isDestroyed(activity);
+    }
+
+    /**
+     * 在主进程中开启跨进程事件转发,见{@see EventBridge}
+     *
+     * @param name 本地socket的名字
+     * @return 通过{@see EventBridge#forward(String)}选择需要转发的tag
+     * @throws IOException
+     */
+    public static EventBridge listenBridge(String name) throws IOException {
+        return EventBridge.listen(eventBus, name);
+    }
+
+    /**
+     * 在其他进程中连接主进程的跨进程事件转发
+     *
+     * @param name 本地socket的名字
+     * @return 通过{@see EventBridge#forward(String)}选择需要转发的tag
+     */
+    public static EventBridge connectBridge(String name) {
+        return EventBridge.connect(eventBus, name);
+    }
+
+    /**
+     * 开始录制post的事件流,只录制事件类型、tag和时间间隔,见{@see EventRecorder}
+     *
+     * @param out 日志的输出流
+     * @return 停止录制时调用{@see EventRecorder#close()}
+     * @throws IOException
+     */
+    public static EventRecorder startRecording(OutputStream out) throws IOException {
+        return EventRecorder.start(eventBus, out);
+    }
+
+    /**
+     * 开始录制post的事件流,见{@see EventRecorder}
+     *
+     * @param out            日志的输出流
+     * @param recordPayloads 是否录制String、基本类型包装类和byte[]事件的内容
+     * @return 停止录制时调用{@see EventRecorder#close()}
+     * @throws IOException
+     */
+    public static EventRecorder startRecording(OutputStream out, boolean recordPayloads) throws IOException {
+        return EventRecorder.start(eventBus, out, recordPayloads);
+    }
 }
@@ -0,0 +1,382 @@
+package com.sunnybear.library.eventbus;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EventBus的运行指标,统计每种事件的post次数和订阅数、每个订阅函数的执行耗时以及UI和异步线程的排队时间.
+ * <p>
+ * 默认关闭,关闭时每次post和投递只有一次volatile读的开销.通过{@see #setEnabled(boolean)}开启,
+ * 在出现卡顿时通过{@see #getSubscriberStats()}找到耗时的订阅函数,或者通过{@see #dumpToFile(File)}导出.
+ */
+public final class EventBusMetrics {
+    private static final EventBusMetrics sDefault = new EventBusMetrics();
+
+    private static volatile boolean sEnabled;
+
+    /**
+     * EventType-post统计
+     */
+    private final ConcurrentHashMap<EventType, PostStat> mPostStats = new ConcurrentHashMap<EventType, PostStat>();
+    /**
+     * 订阅者类型-订阅函数-耗时统计
+     */
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<TargetMethod, SubscriberStat>> mSubscriberStats =
+            new ConcurrentHashMap<Class<?>, ConcurrentHashMap<TargetMethod, SubscriberStat>>();
+    /**
+     * 每种线程模型事件的排队时间
+     */
+    private final Map<ThreadMode, LatencyStat> mQueueWaitStats = new EnumMap<ThreadMode, LatencyStat>(ThreadMode.class);
+
+    private EventBusMetrics() {
+        for (ThreadMode mode : ThreadMode.values()) {
+            mQueueWaitStats.put(mode, new LatencyStat());
+        }
+    }
+
+    public static EventBusMetrics getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * @return 是否开启统计
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * 开启或关闭统计,关闭时保留已有数据
+     *
+     * @param enabled
+     */
+    public void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * 清空已有数据
+     */
+    public void reset() {
+        mPostStats.clear();
+        mSubscriberStats.clear();
+        for (LatencyStat stat : mQueueWaitStats.values()) {
+            stat.reset();
+        }
+    }
+
+    /**
+     * 记录一次post
+     *
+     * @param type 事件类型,可能是线程复用的对象,不能保存
+     * @param fanOut 匹配到的订阅数
+     */
+    void recordPost(EventType type, int fanOut) {
+        PostStat stat = mPostStats.get(type);
+        if (stat == null) {
+            EventType eventType = new EventType(type.paramClass, type.tag);
+            stat = new PostStat(eventType);
+            PostStat previous = mPostStats.putIfAbsent(eventType, stat);
+            if (previous != null) {
+                stat = previous;
+            }
+        }
+        stat.mPostCount.incrementAndGet();
+        stat.mTotalFanOut.addAndGet(fanOut);
+        updateMax(stat.mMaxFanOut, fanOut);
+    }
+
+    /**
+     * 记录一次订阅函数的执行耗时
+     *
+     * @param subscription
+     * @param subscriber
+     * @param nanos
+     */
+    public void recordSubscriberTime(Subscription subscription, Object subscriber, long nanos) {
+        getSubscriberStat(subscription, subscriber).add(nanos);
+    }
+
+    /**
+     * 记录一次因为超过deadline而被丢弃的投递
+     *
+     * @param subscription
+     * @param subscriber
+     */
+    public void recordStaleDrop(Subscription subscription, Object subscriber) {
+        getSubscriberStat(subscription, subscriber).mDroppedCount.incrementAndGet();
+    }
+
+    private SubscriberStat getSubscriberStat(Subscription subscription, Object subscriber) {
+        Class<?> subscriberClass = subscriber.getClass();
+        ConcurrentHashMap<TargetMethod, SubscriberStat> methodStats = mSubscriberStats.get(subscriberClass);
+        if (methodStats == null) {
+            methodStats = new ConcurrentHashMap<TargetMethod, SubscriberStat>();
+            ConcurrentHashMap<TargetMethod, SubscriberStat> previous = mSubscriberStats.putIfAbsent(subscriberClass,
+                    methodStats);
+            if (previous != null) {
+                methodStats = previous;
+            }
+        }
+        TargetMethod targetMethod = subscription.mTargetMethod;
+        SubscriberStat stat = methodStats.get(targetMethod);
+        if (stat == null) {
+            stat = new SubscriberStat(subscriberClass.getName(), targetMethod);
+            SubscriberStat previous = methodStats.putIfAbsent(targetMethod, stat);
+            if (previous != null) {
+                stat = previous;
+            }
+        }
+        return stat;
+    }
+
+    /**
+     * 记录事件从post到开始执行的排队时间
+     *
+     * @param mode
+     * @param nanos
+     */
+    public void recordQueueWait(ThreadMode mode, long nanos) {
+        mQueueWaitStats.get(mode).add(nanos);
+    }
+
+    /**
+     * @param eventClass
+     * @param tag
+     * @return 事件的post次数
+     */
+    public long getPostCount(Class<?> eventClass, String tag) {
+        PostStat stat = mPostStats.get(new EventType(eventClass, tag));
+        return stat == null ? 0 : stat.getPostCount();
+    }
+
+    /**
+     * @return 全部事件的post统计,按照post次数从多到少排列
+     */
+    public List<PostStat> getPostStats() {
+        List<PostStat> stats = new ArrayList<PostStat>(mPostStats.values());
+        Collections.sort(stats, new Comparator<PostStat>() {
+            @Override
+            public int compare(PostStat lhs, PostStat rhs) {
+                return compareLong(rhs.getPostCount(), lhs.getPostCount());
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * @return 全部订阅函数的耗时统计,按照总耗时从多到少排列
+     */
+    public List<SubscriberStat> getSubscriberStats() {
+        List<SubscriberStat> stats = new ArrayList<SubscriberStat>();
+        for (ConcurrentHashMap<TargetMethod, SubscriberStat> methodStats : mSubscriberStats.values()) {
+            stats.addAll(methodStats.values());
+        }
+        Collections.sort(stats, new Comparator<SubscriberStat>() {
+            @Override
+            public int compare(SubscriberStat lhs, SubscriberStat rhs) {
+                return compareLong(rhs.getTotalNanos(), lhs.getTotalNanos());
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * @param mode
+     * @return 该线程模型事件的排队时间统计
+     */
+    public LatencyStat getQueueWaitStat(ThreadMode mode) {
+        return mQueueWaitStats.get(mode);
+    }
+
+    /**
+     * @return 可读的统计报告
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("EventBus metrics (enabled=").append(sEnabled).append(")\n");
+        builder.append("\n[posts]\n");
+        for (PostStat stat : getPostStats()) {
+            builder.append(stat).append('\n');
+        }
+        builder.append("\n[subscribers]\n");
+        for (SubscriberStat stat : getSubscriberStats()) {
+            builder.append(stat).append('\n');
+        }
+        builder.append("\n[queue wait]\n");
+        for (Map.Entry<ThreadMode, LatencyStat> entry : mQueueWaitStats.entrySet()) {
+            builder.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 将统计报告写入文件
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void dumpToFile(File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(dump());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static int compareLong(long lhs, long rhs) {
+        return lhs < rhs ? -1 : (lhs == rhs ? 0 : 1);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * 耗时统计
+     */
+    public static class LatencyStat {
+        final AtomicLong mCount = new AtomicLong();
+        final AtomicLong mTotalNanos = new AtomicLong();
+        final AtomicLong mMaxNanos = new AtomicLong();
+
+        void add(long nanos) {
+            mCount.incrementAndGet();
+            mTotalNanos.addAndGet(nanos);
+            updateMax(mMaxNanos, nanos);
+        }
+
+        void reset() {
+            mCount.set(0);
+            mTotalNanos.set(0);
+            mMaxNanos.set(0);
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+        public long getTotalNanos() {
+            return mTotalNanos.get();
+        }
+
+        /**
+         * @return 平均耗时,单位毫秒
+         */
+        public double getAverageMillis() {
+            long count = mCount.get();
+            return count == 0 ? 0 : mTotalNanos.get() / 1e6 / count;
+        }
+
+        /**
+         * @return 最大耗时,单位毫秒
+         */
+        public double getMaxMillis() {
+            return mMaxNanos.get() / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d avg=%.3fms max=%.3fms total=%.3fms",
+                    getCount(), getAverageMillis(), getMaxMillis(), getTotalNanos() / 1e6);
+        }
+    }
+
+    /**
+     * 一个订阅函数的耗时统计
+     */
+    public static final class SubscriberStat extends LatencyStat {
+        /**
+         * 订阅者类名
+         */
+        public final String subscriberClass;
+        /**
+         * 订阅函数名
+         */
+        public final String methodName;
+        /**
+         * 订阅的事件类型
+         */
+        public final Class<?> eventType;
+        /**
+         * 订阅函数的线程模型
+         */
+        public final ThreadMode threadMode;
+        final AtomicLong mDroppedCount = new AtomicLong();
+
+        SubscriberStat(String subscriberClass, TargetMethod targetMethod) {
+            this.subscriberClass = subscriberClass;
+            this.methodName = targetMethod.methodName;
+            this.eventType = targetMethod.eventType;
+            this.threadMode = targetMethod.threadMode;
+        }
+
+        /**
+         * @return 超过deadline被丢弃的投递数
+         */
+        public long getDroppedCount() {
+            return mDroppedCount.get();
+        }
+
+        @Override
+        public String toString() {
+            long dropped = getDroppedCount();
+            return subscriberClass + "#" + methodName + "(" + eventType.getName() + ") " + threadMode + " "
+                    + super.toString() + (dropped > 0 ? " dropped=" + dropped : "");
+        }
+    }
+
+    /**
+     * 一种事件的post统计
+     */
+    public static final class PostStat {
+        /**
+         * 事件类型
+         */
+        public final EventType eventType;
+        final AtomicLong mPostCount = new AtomicLong();
+        final AtomicLong mTotalFanOut = new AtomicLong();
+        final AtomicLong mMaxFanOut = new AtomicLong();
+
+        PostStat(EventType eventType) {
+            this.eventType = eventType;
+        }
+
+        public long getPostCount() {
+            return mPostCount.get();
+        }
+
+        /**
+         * @return 平均每次post匹配到的订阅数
+         */
+        public double getAverageFanOut() {
+            long count = mPostCount.get();
+            return count == 0 ? 0 : (double) mTotalFanOut.get() / count;
+        }
+
+        public long getMaxFanOut() {
+            return mMaxFanOut.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s posts=%d fanOut(avg=%.1f max=%d)",
+                    eventType, getPostCount(), getAverageFanOut(), getMaxFanOut());
+        }
+    }
+}
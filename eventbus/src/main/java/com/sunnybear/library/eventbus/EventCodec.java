@@ -0,0 +1,32 @@
+package com.sunnybear.library.eventbus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 跨进程转发事件时的编解码器,两个进程需要为同一事件类型注册相同的编解码器,
+ * 见{@see EventBridge#registerCodec(Class, EventCodec)}
+ *
+ * @param <T> 事件类型
+ */
+public interface EventCodec<T> {
+
+    /**
+     * 在EventBridge的发送线程中调用,事件在post之后不应该再被修改
+     *
+     * @param event
+     * @param out
+     * @throws IOException
+     */
+    void encode(T event, DataOutput out) throws IOException;
+
+    /**
+     * 在EventBridge的接收线程中调用,抛出异常或者返回null时EventBridge会断开当前连接
+     *
+     * @param in
+     * @return 解码的事件, 不能为null
+     * @throws IOException
+     */
+    T decode(DataInput in) throws IOException;
+}
@@ -0,0 +1,125 @@
+package com.sunnybear.library.eventbus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 事件类型-编解码器,内置了String、基本类型包装类和byte[]的编解码器
+ */
+final class EventCodecs {
+    private final Map<Class<?>, EventCodec<?>> mCodecsByClass = new ConcurrentHashMap<Class<?>, EventCodec<?>>();
+    private final Map<String, EventCodec<?>> mCodecsByName = new ConcurrentHashMap<String, EventCodec<?>>();
+
+    EventCodecs() {
+        this(true);
+    }
+
+    /**
+     * @param defaults 是否注册内置的编解码器
+     */
+    EventCodecs(boolean defaults) {
+        if (defaults) {
+            registerDefaults();
+        }
+    }
+
+    <T> void register(Class<T> eventClass, EventCodec<T> codec) {
+        mCodecsByClass.put(eventClass, codec);
+        mCodecsByName.put(eventClass.getName(), codec);
+    }
+
+    @SuppressWarnings("unchecked")
+    EventCodec<Object> get(Class<?> eventClass) {
+        return (EventCodec<Object>) mCodecsByClass.get(eventClass);
+    }
+
+    EventCodec<?> get(String className) {
+        return mCodecsByName.get(className);
+    }
+
+    private void registerDefaults() {
+        register(String.class, new EventCodec<String>() {
+            @Override
+            public void encode(String event, DataOutput out) throws IOException {
+                out.writeUTF(event);
+            }
+
+            @Override
+            public String decode(DataInput in) throws IOException {
+                return in.readUTF();
+            }
+        });
+        register(Integer.class, new EventCodec<Integer>() {
+            @Override
+            public void encode(Integer event, DataOutput out) throws IOException {
+                out.writeInt(event);
+            }
+
+            @Override
+            public Integer decode(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        });
+        register(Long.class, new EventCodec<Long>() {
+            @Override
+            public void encode(Long event, DataOutput out) throws IOException {
+                out.writeLong(event);
+            }
+
+            @Override
+            public Long decode(DataInput in) throws IOException {
+                return in.readLong();
+            }
+        });
+        register(Boolean.class, new EventCodec<Boolean>() {
+            @Override
+            public void encode(Boolean event, DataOutput out) throws IOException {
+                out.writeBoolean(event);
+            }
+
+            @Override
+            public Boolean decode(DataInput in) throws IOException {
+                return in.readBoolean();
+            }
+        });
+        register(Float.class, new EventCodec<Float>() {
+            @Override
+            public void encode(Float event, DataOutput out) throws IOException {
+                out.writeFloat(event);
+            }
+
+            @Override
+            public Float decode(DataInput in) throws IOException {
+                return in.readFloat();
+            }
+        });
+        register(Double.class, new EventCodec<Double>() {
+            @Override
+            public void encode(Double event, DataOutput out) throws IOException {
+                out.writeDouble(event);
+            }
+
+            @Override
+            public Double decode(DataInput in) throws IOException {
+                return in.readDouble();
+            }
+        });
+        register(byte[].class, new EventCodec<byte[]>() {
+            @Override
+            public void encode(byte[] event, DataOutput out) throws IOException {
+                out.writeInt(event.length);
+                out.write(event);
+            }
+
+            @Override
+            public byte[] decode(DataInput in) throws IOException {
+                byte[] event = new byte[in.readInt()];
+                in.readFully(event);
+                return event;
+            }
+        });
+    }
+}
@@ -0,0 +1,15 @@
+package com.sunnybear.library.eventbus;
+
+/**
+ * 订阅函数的调用器,由订阅者索引生成直接调用的实现,没有索引时使用{@see ReflectiveInvoker}
+ */
+public interface EventInvoker {
+    /**
+     * 调用订阅函数
+     *
+     * @param subscriber 订阅者
+     * @param event      事件
+     * @throws Exception 订阅函数抛出的异常
+     */
+    void invoke(Object subscriber, Object event) throws Exception;
+}
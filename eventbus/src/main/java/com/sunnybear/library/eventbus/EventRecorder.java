@@ -0,0 +1,241 @@
+package com.sunnybear.library.eventbus;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 录制EventBus中post的事件流,用于在JVM中通过{@see EventReplayer}回放,按照真实的事件分布测量投递性能.
+ * <p>
+ * post线程只把事件放入有界队列,由录制线程写入二进制日志,队列已满时丢弃并计数.日志格式:
+ * <pre>
+ * log     := int(MAGIC) int(VERSION) record*
+ * record  := varlong(deltaNanos) string(tag) string(typeName) varint(payloadLength + 1) payload
+ * </pre>
+ * deltaNanos为与上一个事件post时间的间隔,string见{@see StringTable}.
+ * 默认只录制事件类型、tag和时间间隔,payloadLength + 1为0,回放时使用无参构造函数或者内置类型的默认值创建事件.
+ * 事件内容可能包含用户数据,只有显式开启时才录制:{@see #registerCodec(Class, EventCodec)}注册的类型,
+ * 以及{@see #start(OutputStream, boolean)}开启后String、基本类型包装类和byte[]的内容.
+ */
+public final class EventRecorder implements PostObserver, Closeable {
+    private static final String TAG = EventRecorder.class.getSimpleName();
+    static final int MAGIC = 0x4542524C;
+    static final int VERSION = 1;
+    /**
+     * 等待写入的事件上限,超过时丢弃新事件
+     */
+    private static final int MAX_PENDING_EVENTS = 8192;
+    /**
+     * 通知录制线程结束
+     */
+    private static final RecordedPost END = new RecordedPost(0, null, null);
+
+    private final EventBus mEventBus;
+    private final DataOutputStream mOutput;
+    private final EventCodecs mCodecs;
+    private final StringTable mStrings = new StringTable();
+    private final BlockingQueue<RecordedPost> mPending = new LinkedBlockingQueue<RecordedPost>(MAX_PENDING_EVENTS);
+    private final ByteArrayOutputStream mPayloadBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream mPayloadOutput = new DataOutputStream(mPayloadBuffer);
+    private final AtomicLong mRecordedCount = new AtomicLong();
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final Thread mWriterThread;
+    private long mLastPostNanos;
+    private volatile boolean mClosed;
+    /**
+     * 写入失败,写线程已经关闭输出流并退出
+     */
+    private volatile boolean mFailed;
+
+    private EventRecorder(EventBus eventBus, OutputStream out, boolean recordPayloads) {
+        mEventBus = eventBus;
+        mCodecs = new EventCodecs(recordPayloads);
+        mOutput = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        mWriterThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, TAG);
+        mWriterThread.setDaemon(true);
+    }
+
+    /**
+     * 开始录制默认EventBus的事件,只录制事件类型、tag和时间间隔
+     *
+     * @param out 日志的输出流,{@see #close()}时关闭
+     * @return
+     * @throws IOException
+     */
+    public static EventRecorder start(OutputStream out) throws IOException {
+        return start(out, false);
+    }
+
+    /**
+     * 开始录制默认EventBus的事件
+     *
+     * @param out            日志的输出流,{@see #close()}时关闭
+     * @param recordPayloads 是否录制String、基本类型包装类和byte[]事件的内容,这些内容会原样写入日志
+     * @return
+     * @throws IOException
+     */
+    public static EventRecorder start(OutputStream out, boolean recordPayloads) throws IOException {
+        return start(EventBus.getDefault(), out, recordPayloads);
+    }
+
+    static EventRecorder start(EventBus eventBus, OutputStream out) throws IOException {
+        return start(eventBus, out, false);
+    }
+
+    static EventRecorder start(EventBus eventBus, OutputStream out, boolean recordPayloads) throws IOException {
+        EventRecorder recorder = new EventRecorder(eventBus, out, recordPayloads);
+        recorder.mOutput.writeInt(MAGIC);
+        recorder.mOutput.writeInt(VERSION);
+        recorder.mLastPostNanos = System.nanoTime();
+        recorder.mWriterThread.start();
+        eventBus.addPostObserver(recorder);
+        return recorder;
+    }
+
+    /**
+     * 注册事件类型的编解码器,开启录制该类型事件的内容,回放时需要注册相同的编解码器
+     *
+     * @param eventClass
+     * @param codec
+     * @return
+     */
+    public <T> EventRecorder registerCodec(Class<T> eventClass, EventCodec<T> codec) {
+        mCodecs.register(eventClass, codec);
+        return this;
+    }
+
+    /**
+     * @return 已写入日志的事件数
+     */
+    public long getRecordedCount() {
+        return mRecordedCount.get();
+    }
+
+    /**
+     * @return 因为队列已满或者编码失败而丢弃的事件数
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    @Override
+    public void onPost(Object event, String tag) {
+        if (mClosed || mFailed || tag == null) {
+            return;
+        }
+        if (!mPending.offer(new RecordedPost(System.nanoTime(), tag, event))) {
+            mDroppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 停止录制,写完队列中的事件后关闭输出流
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        mEventBus.removePostObserver(this);
+        try {
+            // 写线程因为写入失败退出后不会再消费队列,队列满时不能一直等待
+            while (mWriterThread.isAlive() && !mPending.offer(END, 100, TimeUnit.MILLISECONDS)) {
+            }
+            mWriterThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 写入失败时输出流已经由写线程关闭
+        if (!mFailed) {
+            mOutput.close();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                RecordedPost post = mPending.take();
+                if (post == END) {
+                    mOutput.flush();
+                    return;
+                }
+                write(post);
+                // 空闲时写出缓冲区,进程被杀死时日志仍然可用
+                if (mPending.isEmpty()) {
+                    mOutput.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.w(TAG, "recorder interrupted.");
+        } catch (IOException e) {
+            Log.e(TAG, "write event log failed, recording stopped.", e);
+            mFailed = true;
+            mEventBus.removePostObserver(this);
+            mPending.clear();
+            try {
+                mOutput.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void write(RecordedPost post) throws IOException {
+        Class<?> eventClass = post.event.getClass();
+        EventCodec<Object> codec = mCodecs.get(eventClass);
+        int payloadLength = -1;
+        if (codec != null) {
+            mPayloadBuffer.reset();
+            try {
+                codec.encode(post.event, mPayloadOutput);
+                mPayloadOutput.flush();
+                payloadLength = mPayloadBuffer.size();
+            } catch (Exception e) {
+                Log.w(TAG, "encode " + eventClass.getName() + " failed.", e);
+                mDroppedCount.incrementAndGet();
+                return;
+            }
+        }
+        // 不同线程post的时间可能与入队顺序略有交错,间隔最小为0
+        StringTable.writeVarLong(mOutput, Math.max(0, post.postNanos - mLastPostNanos));
+        mLastPostNanos = Math.max(mLastPostNanos, post.postNanos);
+        mStrings.write(mOutput, post.tag);
+        mStrings.write(mOutput, eventClass.getName());
+        StringTable.writeVarint(mOutput, payloadLength + 1);
+        if (payloadLength > 0) {
+            mPayloadBuffer.writeTo(mOutput);
+        }
+        mRecordedCount.incrementAndGet();
+    }
+
+    /**
+     * 等待写入的事件
+     */
+    private static final class RecordedPost {
+        final long postNanos;
+        final String tag;
+        final Object event;
+
+        RecordedPost(long postNanos, String tag, Object event) {
+            this.postNanos = postNanos;
+            this.tag = tag;
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.sunnybear.library.eventbus;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 回放{@see EventRecorder}录制的事件流,测量投递的吞吐量和每次post的耗时分布.
+ * <p>
+ * 先通过{@see #load(InputStream)}把日志全部解码到内存,回放时只测量post本身.
+ * 回放前需要在EventBus中注册与被测版本相同的订阅者;异步和UI线程的订阅函数只计入入队的耗时.
+ */
+public final class EventReplayer {
+    private final EventCodecs mCodecs = new EventCodecs();
+    /**
+     * 没有录制内容的事件类型-回放使用的事件
+     */
+    private final Map<String, Object> mPlaceholders = new HashMap<String, Object>();
+    private final List<ReplayEvent> mEvents = new ArrayList<ReplayEvent>();
+    private int mSkippedCount;
+
+    public EventReplayer() {
+        // 默认不录制内置类型的内容,这些类型没有无参构造函数,回放时使用默认值
+        mPlaceholders.put(String.class.getName(), "");
+        mPlaceholders.put(Integer.class.getName(), 0);
+        mPlaceholders.put(Long.class.getName(), 0L);
+        mPlaceholders.put(Boolean.class.getName(), Boolean.FALSE);
+        mPlaceholders.put(Float.class.getName(), 0f);
+        mPlaceholders.put(Double.class.getName(), 0d);
+        mPlaceholders.put(byte[].class.getName(), new byte[0]);
+    }
+
+    /**
+     * 注册事件类型的编解码器,需要与录制时相同
+     *
+     * @param eventClass
+     * @param codec
+     * @return
+     */
+    public <T> EventReplayer registerCodec(Class<T> eventClass, EventCodec<T> codec) {
+        mCodecs.register(eventClass, codec);
+        return this;
+    }
+
+    /**
+     * 读取并解码日志,找不到类型或者无法创建的事件会被跳过
+     *
+     * @param in 日志的输入流,读取完后不会关闭
+     * @return
+     * @throws IOException 日志格式错误
+     */
+    public EventReplayer load(InputStream in) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        if (input.readInt() != EventRecorder.MAGIC) {
+            throw new IOException("not an event log");
+        }
+        int version = input.readInt();
+        if (version != EventRecorder.VERSION) {
+            throw new IOException("unsupported event log version " + version);
+        }
+        StringTable strings = new StringTable();
+        long offsetNanos = 0;
+        while (true) {
+            long deltaNanos;
+            try {
+                deltaNanos = StringTable.readVarLong(input);
+            } catch (EOFException e) {
+                break;
+            }
+            offsetNanos += deltaNanos;
+            String tag = strings.read(input);
+            String typeName = strings.read(input);
+            int payloadLength = StringTable.readVarint(input) - 1;
+            byte[] payload = null;
+            if (payloadLength >= 0) {
+                payload = new byte[payloadLength];
+                input.readFully(payload);
+            }
+            Object event = createEvent(typeName, payload);
+            if (event == null) {
+                mSkippedCount++;
+                continue;
+            }
+            mEvents.add(new ReplayEvent(offsetNanos, tag, event));
+        }
+        return this;
+    }
+
+    /**
+     * @return 已加载的事件数
+     */
+    public int getEventCount() {
+        return mEvents.size();
+    }
+
+    /**
+     * @return 加载时跳过的事件数
+     */
+    public int getSkippedCount() {
+        return mSkippedCount;
+    }
+
+    /**
+     * 在当前线程向默认EventBus回放全部事件
+     *
+     * @param paced true时按照录制的时间间隔post,false时连续post测量最大吞吐量
+     * @return
+     */
+    public ReplayResult replay(boolean paced) {
+        return replay(EventBus.getDefault(), paced);
+    }
+
+    ReplayResult replay(EventBus eventBus, boolean paced) {
+        int count = mEvents.size();
+        long[] latencies = new long[count];
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            ReplayEvent replayEvent = mEvents.get(i);
+            if (paced) {
+                waitUntil(startNanos + replayEvent.offsetNanos);
+            }
+            long postNanos = System.nanoTime();
+            eventBus.post(replayEvent.event, replayEvent.tag);
+            latencies[i] = System.nanoTime() - postNanos;
+        }
+        return new ReplayResult(count, mSkippedCount, System.nanoTime() - startNanos, latencies);
+    }
+
+    private Object createEvent(String typeName, byte[] payload) throws IOException {
+        if (payload != null) {
+            EventCodec<?> codec = mCodecs.get(typeName);
+            if (codec != null) {
+                return codec.decode(new DataInputStream(new ByteArrayInputStream(payload)));
+            }
+        }
+        if (mPlaceholders.containsKey(typeName)) {
+            return mPlaceholders.get(typeName);
+        }
+        Object placeholder = null;
+        try {
+            Constructor<?> constructor = Class.forName(typeName, false, EventReplayer.class.getClassLoader())
+                    .getDeclaredConstructor();
+            constructor.setAccessible(true);
+            placeholder = constructor.newInstance();
+        } catch (Exception e) {
+            // 找不到类型或者没有无参构造函数,该类型的事件全部跳过
+        }
+        mPlaceholders.put(typeName, placeholder);
+        return placeholder;
+    }
+
+    private static void waitUntil(long targetNanos) {
+        long remaining;
+        while ((remaining = targetNanos - System.nanoTime()) > 0) {
+            if (remaining > 2000000L) {
+                try {
+                    Thread.sleep((remaining - 1000000L) / 1000000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * 回放的事件
+     */
+    private static final class ReplayEvent {
+        final long offsetNanos;
+        final String tag;
+        final Object event;
+
+        ReplayEvent(long offsetNanos, String tag, Object event) {
+            this.offsetNanos = offsetNanos;
+            this.tag = tag;
+            this.event = event;
+        }
+    }
+
+    /**
+     * 一次回放的结果
+     */
+    public static final class ReplayResult {
+        /**
+         * 回放的事件数
+         */
+        public final int eventCount;
+        /**
+         * 加载时跳过的事件数
+         */
+        public final int skippedCount;
+        /**
+         * 回放的总耗时
+         */
+        public final long totalNanos;
+        /**
+         * 排好序的每次post耗时
+         */
+        private final long[] mSortedLatencies;
+
+        ReplayResult(int eventCount, int skippedCount, long totalNanos, long[] latencies) {
+            this.eventCount = eventCount;
+            this.skippedCount = skippedCount;
+            this.totalNanos = totalNanos;
+            mSortedLatencies = latencies;
+            Arrays.sort(mSortedLatencies);
+        }
+
+        /**
+         * @return 每秒post的事件数
+         */
+        public double getThroughput() {
+            return totalNanos == 0 ? 0 : eventCount * 1e9 / totalNanos;
+        }
+
+        /**
+         * @param percentile 0到1之间,例如0.99
+         * @return 每次post耗时的分位数,单位纳秒
+         */
+        public long getLatencyNanos(double percentile) {
+            if (mSortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * mSortedLatencies.length) - 1;
+            return mSortedLatencies[Math.max(0, Math.min(index, mSortedLatencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("events=%d skipped=%d total=%.3fms throughput=%.0f/s "
+                            + "latency(p50=%dns p99=%dns p99.9=%dns max=%dns)",
+                    eventCount, skippedCount, totalNanos / 1e6, getThroughput(), getLatencyNanos(0.5),
+                    getLatencyNanos(0.99), getLatencyNanos(0.999), getLatencyNanos(1));
+        }
+    }
+}
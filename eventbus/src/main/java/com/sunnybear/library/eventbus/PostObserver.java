@@ -0,0 +1,15 @@
+package com.sunnybear.library.eventbus;
+
+/**
+ * 在事件投递之前观察post的事件,用于跨进程转发和录制
+ */
+interface PostObserver {
+
+    /**
+     * 在post线程中调用,不能阻塞
+     *
+     * @param event
+     * @param tag
+     */
+    void onPost(Object event, String tag);
+}
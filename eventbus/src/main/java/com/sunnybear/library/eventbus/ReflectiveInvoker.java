@@ -0,0 +1,33 @@
+package com.sunnybear.library.eventbus;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 通过反射调用订阅函数,Method在创建时设置为可访问,调用时不再做访问检查
+ */
+final class ReflectiveInvoker implements EventInvoker {
+    private final Method mMethod;
+
+    ReflectiveInvoker(Method method) {
+        mMethod = method;
+        mMethod.setAccessible(true);
+    }
+
+    @Override
+    public void invoke(Object subscriber, Object event) throws Exception {
+        try {
+            mMethod.invoke(subscriber, event);
+        } catch (InvocationTargetException e) {
+            // 抛出订阅函数本身的异常,与生成的调用器保持一致
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
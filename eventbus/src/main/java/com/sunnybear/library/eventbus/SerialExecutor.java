@@ -0,0 +1,68 @@
+package com.sunnybear.library.eventbus;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * 在指定执行器上按提交顺序依次执行任务,同一时间最多只有一个任务在执行,
+ * 用于让一个订阅者的异步事件串行执行,不同订阅者之间仍然可以在同一个执行器上并行
+ */
+final class SerialExecutor implements Executor {
+    private final Executor mExecutor;
+    private final Queue<Runnable> mTasks = new ArrayDeque<Runnable>();
+    /**
+     * 是否已经有任务提交到执行器
+     */
+    private boolean mActive;
+
+    private final Runnable mDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    SerialExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (mTasks) {
+            mTasks.offer(task);
+            if (mActive) {
+                return;
+            }
+            mActive = true;
+        }
+        try {
+            mExecutor.execute(mDrainRunnable);
+        } catch (RuntimeException e) {
+            // 执行器拒绝时移除刚加入的任务,之后的任务仍然可以再次提交
+            synchronized (mTasks) {
+                mTasks.remove(task);
+                mActive = false;
+            }
+            throw e;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (mTasks) {
+                task = mTasks.poll();
+                if (task == null) {
+                    mActive = false;
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.sunnybear.library.eventbus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制事件流中的字符串表,tag和事件类名只完整写入一次,之后只写入编号.
+ * 写入和读取各使用一个实例,格式:
+ * <pre>
+ * string := varint(0) utf                 不进入字符串表
+ *         | varint(2 * id + 1) utf        新的字符串表项
+ *         | varint(2 * id + 2)            已有的字符串表项
+ * </pre>
+ */
+final class StringTable {
+    /**
+     * 字符串表上限,超过后字符串不再进入字符串表
+     */
+    private static final int MAX_SIZE = 1024;
+
+    private final Map<String, Integer> mIds = new HashMap<String, Integer>();
+    private final List<String> mStrings = new ArrayList<String>();
+
+    void write(DataOutput out, String value) throws IOException {
+        Integer id = mIds.get(value);
+        if (id != null) {
+            writeVarint(out, 2 * id + 2);
+            return;
+        }
+        if (mIds.size() < MAX_SIZE) {
+            id = mIds.size();
+            mIds.put(value, id);
+            writeVarint(out, 2 * id + 1);
+        } else {
+            writeVarint(out, 0);
+        }
+        out.writeUTF(value);
+    }
+
+    String read(DataInput in) throws IOException {
+        int ref = readVarint(in);
+        if (ref == 0) {
+            return in.readUTF();
+        }
+        if ((ref & 1) == 1) {
+            String value = in.readUTF();
+            mStrings.add(value);
+            return value;
+        }
+        int id = ref / 2 - 1;
+        if (id < 0 || id >= mStrings.size()) {
+            throw new IOException("unknown string id " + id);
+        }
+        return mStrings.get(id);
+    }
+
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+}
@@ -42,4 +42,36 @@ public @interface Subcriber {
      * @return
      */
     ThreadMode mode() default ThreadMode.MAIN;
+
+    /**
+     * 只对ThreadMode.MAIN和MAIN_DEADLINE有效,为true时如果同一个订阅函数还有未执行的事件,新事件会替换旧事件,
+     * 适用于进度、滚动位置等只关心最新状态的事件
+     *
+     * @return
+     */
+    boolean latestOnly() default false;
+
+    /**
+     * 是否接收粘性事件,为true时register会立即收到之前通过postSticky发布的最新事件
+     *
+     * @return
+     */
+    boolean sticky() default false;
+
+    /**
+     * 投递优先级,同一个事件的订阅函数按照优先级从高到低投递,优先级相同时按照注册顺序投递.
+     * 延迟敏感的订阅函数应该设置较高的优先级,ThreadMode.POST的订阅函数还可以通过
+     * {@see EventBusHelper#cancelEventDelivery(Object)}取消事件向低优先级订阅函数的投递
+     *
+     * @return
+     */
+    int priority() default 0;
+
+    /**
+     * 只对ThreadMode.MAIN_DEADLINE有效,事件从post到开始执行的最长等待时间,单位毫秒,
+     * 超过时事件被丢弃.小于等于0时使用{@see com.sunnybear.library.eventbus.handler.UIThreadEventHandler#DEFAULT_DEADLINE_MILLIS}
+     *
+     * @return
+     */
+    long deadlineMillis() default 0;
 }
@@ -27,11 +27,16 @@ package com.sunnybear.library.eventbus;
 import android.util.Log;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * the subscriber method hunter, find all of the subscriber's methods which
@@ -40,28 +45,185 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * @author mrsimple
  */
 public class SubsciberMethodHunter {
+    private static final String TAG = SubsciberMethodHunter.class.getSimpleName();
+    /**
+     * 订阅函数缓存的最大类数量
+     */
+    private static final int MAX_METHOD_CACHE_SIZE = 256;
+    /**
+     * 订阅者类型到订阅函数的缓存,同一个类的新实例再次注册时不需要再查找.
+     * 缓存超过上限时淘汰任意一项,避免动态加载的类长期驻留
+     */
+    private static final Map<Class<?>, List<TargetMethod>> METHOD_CACHE = new ConcurrentHashMap<Class<?>, List<TargetMethod>>();
+
+    /**
+     * the event bus's subscriber's map.
+     * 每个订阅列表自身作为该EventType的锁,不同EventType的注册和注销互不阻塞;
+     * post只读取写时复制的列表快照,不需要加锁
+     */
+    ConcurrentMap<EventType, CopyOnWriteArrayList<Subscription>> mSubcriberMap;
+    /**
+     * the reverse index, subscriber to the EventTypes it subscribes
+     */
+    Map<Object, List<EventType>> mSubscriberEventTypes;
+    /**
+     * the reverse index of weak subscribers, weakly keyed so it does not keep them alive
+     */
+    Map<Object, List<EventType>> mWeakSubscriberEventTypes;
+
+    /**
+     * @param subscriberMap
+     */
+    public SubsciberMethodHunter(ConcurrentMap<EventType, CopyOnWriteArrayList<Subscription>> subscriberMap) {
+        this(subscriberMap, new ConcurrentHashMap<Object, List<EventType>>());
+    }
 
     /**
-     * the event bus's subscriber's map
+     * @param subscriberMap
+     * @param subscriberEventTypes
      */
-    Map<EventType, CopyOnWriteArrayList<Subscription>> mSubcriberMap;
+    public SubsciberMethodHunter(ConcurrentMap<EventType, CopyOnWriteArrayList<Subscription>> subscriberMap,
+                                 Map<Object, List<EventType>> subscriberEventTypes) {
+        this(subscriberMap, subscriberEventTypes,
+                Collections.synchronizedMap(new WeakHashMap<Object, List<EventType>>()));
+    }
 
     /**
      * @param subscriberMap
+     * @param subscriberEventTypes
+     * @param weakSubscriberEventTypes
      */
-    public SubsciberMethodHunter(Map<EventType, CopyOnWriteArrayList<Subscription>> subscriberMap) {
+    public SubsciberMethodHunter(ConcurrentMap<EventType, CopyOnWriteArrayList<Subscription>> subscriberMap,
+                                 Map<Object, List<EventType>> subscriberEventTypes,
+                                 Map<Object, List<EventType>> weakSubscriberEventTypes) {
         mSubcriberMap = subscriberMap;
+        mSubscriberEventTypes = subscriberEventTypes;
+        mWeakSubscriberEventTypes = weakSubscriberEventTypes;
     }
 
     /**
      * @param subscriber
-     * @return
+     * @return 本次新增的订阅
+     */
+    public List<Subscription> findSubcribeMethods(Object subscriber) {
+        return findSubcribeMethods(subscriber, false);
+    }
+
+    /**
+     * @param subscriber
+     * @param weak 是否只持有订阅者的弱引用
+     * @return 本次新增的订阅
+     */
+    public List<Subscription> findSubcribeMethods(Object subscriber, boolean weak) {
+        return findSubcribeMethods(subscriber, weak, null);
+    }
+
+    /**
+     * @param subscriber
+     * @param weak 是否只持有订阅者的弱引用
+     * @param executor ThreadMode.ASYNC事件的执行器,可以为null
+     * @return 本次新增的订阅,已经注册过的订阅函数不包含在内
      */
-    public void findSubcribeMethods(Object subscriber) {
+    public List<Subscription> findSubcribeMethods(Object subscriber, boolean weak, Executor executor) {
         if (mSubcriberMap == null) {
             throw new NullPointerException("the mSubcriberMap is null. ");
         }
-        Class<?> clazz = subscriber.getClass();
+        List<TargetMethod> targetMethods = findTargetMethods(subscriber.getClass());
+        List<Subscription> added = new ArrayList<Subscription>(targetMethods.size());
+        for (TargetMethod targetMethod : targetMethods) {
+            EventType eventType = new EventType(targetMethod.eventType, targetMethod.tag);
+            Subscription subscription = subscibe(eventType, targetMethod, subscriber, weak, executor);
+            if (subscription != null) {
+                added.add(subscription);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * 查找订阅者类中的订阅函数,优先使用缓存,其次是编译期生成的{@see SubscriberIndex},没有索引时再通过反射查找
+     *
+     * @param subscriberClass 订阅者类型
+     * @return 订阅函数列表
+     */
+    private List<TargetMethod> findTargetMethods(Class<?> subscriberClass) {
+        List<TargetMethod> targetMethods = METHOD_CACHE.get(subscriberClass);
+        if (targetMethods != null) {
+            return targetMethods;
+        }
+        targetMethods = findMethodsWithIndex(subscriberClass);
+        if (targetMethods == null) {
+            targetMethods = findMethodsWithReflection(subscriberClass);
+        }
+        targetMethods = Collections.unmodifiableList(targetMethods);
+        if (METHOD_CACHE.size() >= MAX_METHOD_CACHE_SIZE) {
+            Iterator<Class<?>> iterator = METHOD_CACHE.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        METHOD_CACHE.put(subscriberClass, targetMethods);
+        return targetMethods;
+    }
+
+    /**
+     * 清除订阅函数缓存
+     */
+    static void clearMethodCache() {
+        METHOD_CACHE.clear();
+    }
+
+    /**
+     * 通过编译期生成的索引查找订阅函数,索引已经包含了父类中的订阅函数,不需要再遍历继承链
+     *
+     * @param subscriberClass 订阅者类型
+     * @return 订阅函数列表, 没有索引时返回null
+     */
+    private List<TargetMethod> findMethodsWithIndex(Class<?> subscriberClass) {
+        SubscriberIndex index = getSubscriberIndex(subscriberClass);
+        if (index == null) {
+            return null;
+        }
+        SubscriberMethodInfo[] methodInfos = index.getSubscriberMethods();
+        List<TargetMethod> targetMethods = new ArrayList<TargetMethod>(methodInfos.length);
+        for (SubscriberMethodInfo methodInfo : methodInfos) {
+            targetMethods.add(new TargetMethod(null, convertType(methodInfo.paramType), methodInfo));
+        }
+        return targetMethods;
+    }
+
+    /**
+     * 加载订阅者类对应的索引类
+     *
+     * @param subscriberClass 订阅者类型
+     * @return 索引, 没有生成索引时返回null
+     */
+    private SubscriberIndex getSubscriberIndex(Class<?> subscriberClass) {
+        try {
+            Class<?> indexClass = Class.forName(subscriberClass.getName() + SubscriberIndex.CLASS_SUFFIX,
+                    true, subscriberClass.getClassLoader());
+            return (SubscriberIndex) indexClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (InstantiationException e) {
+            Log.w(TAG, "unable to create subscriber index of " + subscriberClass.getName(), e);
+            return null;
+        } catch (IllegalAccessException e) {
+            Log.w(TAG, "unable to create subscriber index of " + subscriberClass.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 通过反射查找订阅函数
+     *
+     * @param subscriberClass 订阅者类型
+     * @return 订阅函数列表
+     */
+    private List<TargetMethod> findMethodsWithReflection(Class<?> subscriberClass) {
+        List<TargetMethod> targetMethods = new ArrayList<TargetMethod>();
+        Class<?> clazz = subscriberClass;
         // 查找类中符合要求的注册方法,直到Object类
         while (clazz != null && !isSystemCalss(clazz.getName())) {
             final Method[] allMethods = clazz.getDeclaredMethods();
@@ -75,10 +237,11 @@ public class SubsciberMethodHunter {
                     // just only one param
                     if (paramsTypeClass != null && paramsTypeClass.length == 1) {
                         Class<?> paramType = convertType(paramsTypeClass[0]);
-                        EventType eventType = new EventType(paramType, annotation.tag());
-                        TargetMethod subscribeMethod = new TargetMethod(method, paramType,
-                                annotation.mode());
-                        subscibe(eventType, subscribeMethod, subscriber);
+                        SubscriberMethodInfo methodInfo = new SubscriberMethodInfo(method.getName(),
+                                paramsTypeClass[0], annotation.tag(), annotation.mode(),
+                                annotation.latestOnly(), annotation.sticky(), annotation.priority(),
+                                annotation.deadlineMillis(), new ReflectiveInvoker(method));
+                        targetMethods.add(new TargetMethod(method, paramType, methodInfo));
                     }
                 }
             } // end for
@@ -86,28 +249,90 @@ public class SubsciberMethodHunter {
             // 获取父类,以继续查找父类中复合要求的方法
             clazz = clazz.getSuperclass();
         }
+        return targetMethods;
     }
 
     /**
      * @param event
      * @param method
      * @param subscriber
+     * @param weak
+     * @param executor
+     * @return 新增的订阅,已经存在时返回null
      */
-    private void subscibe(EventType event, TargetMethod method, Object subscriber) {
-        CopyOnWriteArrayList<Subscription> subscriptionLists = mSubcriberMap
-                .get(event);
-        if (subscriptionLists == null) {
-            subscriptionLists = new CopyOnWriteArrayList<Subscription>();
+    private Subscription subscibe(EventType event, TargetMethod method, Object subscriber, boolean weak,
+                          Executor executor) {
+        Subscription newSubscription = new Subscription(subscriber, method, weak, executor);
+        while (true) {
+            CopyOnWriteArrayList<Subscription> subscriptionLists = mSubcriberMap.get(event);
+            if (subscriptionLists == null) {
+                // 将事件类型key和订阅列表存储到map中
+                CopyOnWriteArrayList<Subscription> newList = new CopyOnWriteArrayList<Subscription>();
+                subscriptionLists = mSubcriberMap.putIfAbsent(event, newList);
+                if (subscriptionLists == null) {
+                    subscriptionLists = newList;
+                }
+            }
+            synchronized (subscriptionLists) {
+                // 列表变为空时会被注销流程从map中移除,这时需要重新获取列表
+                if (mSubcriberMap.get(event) != subscriptionLists) {
+                    continue;
+                }
+                if (subscriptionLists.contains(newSubscription)) {
+                    return null;
+                }
+                // 按照优先级从高到低插入,优先级相同的订阅保持注册顺序
+                int index = subscriptionLists.size();
+                for (int i = 0; i < subscriptionLists.size(); i++) {
+                    if (subscriptionLists.get(i).priority < newSubscription.priority) {
+                        index = i;
+                        break;
+                    }
+                }
+                subscriptionLists.add(index, newSubscription);
+            }
+            break;
         }
-
-        Subscription newSubscription = new Subscription(subscriber, method);
-        if (subscriptionLists.contains(newSubscription)) {
-            return;
+        // 记录订阅者所在的EventType,注销时只处理这些订阅列表.
+        // 同一个订阅者可能在多个线程同时注册/注销,记录后列表已经被注销流程移除时需要重新记录
+        Map<Object, List<EventType>> subscriberEventTypes = weak ? mWeakSubscriberEventTypes : mSubscriberEventTypes;
+        while (true) {
+            CopyOnWriteArrayList<EventType> eventTypes = getEventTypes(subscriberEventTypes, subscriber);
+            eventTypes.addIfAbsent(event);
+            if (subscriberEventTypes.get(subscriber) == eventTypes) {
+                break;
+            }
         }
+        return newSubscription;
+    }
 
-        subscriptionLists.add(newSubscription);
-        // 将事件类型key和订阅者信息存储到map中
-        mSubcriberMap.put(event, subscriptionLists);
+    /**
+     * 获取订阅者所在的EventType列表,不存在时创建
+     *
+     * @param subscriberEventTypes
+     * @param subscriber
+     * @return
+     */
+    private static CopyOnWriteArrayList<EventType> getEventTypes(Map<Object, List<EventType>> subscriberEventTypes,
+                                                                 Object subscriber) {
+        CopyOnWriteArrayList<EventType> eventTypes = (CopyOnWriteArrayList<EventType>) subscriberEventTypes.get(subscriber);
+        if (eventTypes != null) {
+            return eventTypes;
+        }
+        CopyOnWriteArrayList<EventType> newList = new CopyOnWriteArrayList<EventType>();
+        if (subscriberEventTypes instanceof ConcurrentMap) {
+            eventTypes = (CopyOnWriteArrayList<EventType>) ((ConcurrentMap<Object, List<EventType>>) subscriberEventTypes)
+                    .putIfAbsent(subscriber, newList);
+        } else {
+            // Collections.synchronizedMap以自身作为锁
+            synchronized (subscriberEventTypes) {
+                eventTypes = (CopyOnWriteArrayList<EventType>) subscriberEventTypes.get(subscriber);
+                if (eventTypes == null) {
+                    subscriberEventTypes.put(subscriber, newList);
+                }
+            }
+        }
+        return eventTypes == null ? newList : eventTypes;
     }
 
     /**
@@ -116,30 +341,86 @@ public class SubsciberMethodHunter {
      * @param subscriber
      */
     public void removeMethodsFromMap(Object subscriber) {
-        Iterator<CopyOnWriteArrayList<Subscription>> iterator = mSubcriberMap
-                .values().iterator();
-        while (iterator.hasNext()) {
-            CopyOnWriteArrayList<Subscription> subscriptions = iterator.next();
-            if (subscriptions != null) {
-                List<Subscription> foundSubscriptions = new LinkedList<Subscription>();
-                Iterator<Subscription> subIterator = subscriptions.iterator();
-                while (subIterator.hasNext()) {
-                    Subscription subscription = subIterator.next();
-                    if (subscription.subscriber.equals(subscriber)) {
-                        Log.d("", "### 移除订阅 " + subscriber.getClass().getName());
+        removeMethodsFromMap(subscriber, mSubscriberEventTypes.remove(subscriber));
+        removeMethodsFromMap(subscriber, mWeakSubscriberEventTypes.remove(subscriber));
+    }
+
+    /**
+     * @param subscriber
+     * @param eventTypes 订阅者所在的EventType
+     */
+    private void removeMethodsFromMap(Object subscriber, List<EventType> eventTypes) {
+        if (eventTypes == null) {
+            return;
+        }
+        Log.d("", "### 移除订阅 " + subscriber.getClass().getName());
+        for (EventType eventType : eventTypes) {
+            CopyOnWriteArrayList<Subscription> subscriptions = mSubcriberMap.get(eventType);
+            if (subscriptions == null) {
+                continue;
+            }
+            synchronized (subscriptions) {
+                List<Subscription> foundSubscriptions = new ArrayList<Subscription>();
+                for (Subscription subscription : subscriptions) {
+                    if (subscriber.equals(subscription.getSubscriber())) {
                         foundSubscriptions.add(subscription);
                     }
                 }
 
                 // 移除该subscriber的相关的Subscription
                 subscriptions.removeAll(foundSubscriptions);
+                removeIfEmpty(eventType, subscriptions);
             }
+        }
+    }
 
-            // 如果针对某个Event的订阅者数量为空了,那么需要从map中清除
-            if (subscriptions == null || subscriptions.size() == 0) {
-                iterator.remove();
+    /**
+     * 如果针对某个Event的订阅者数量为空了,那么需要从map中清除.需要持有subscriptions的锁
+     *
+     * @param eventType
+     * @param subscriptions
+     */
+    private void removeIfEmpty(EventType eventType, CopyOnWriteArrayList<Subscription> subscriptions) {
+        if (subscriptions.size() == 0) {
+            mSubcriberMap.remove(eventType, subscriptions);
+        }
+    }
+
+    /**
+     * 移除订阅者已经被回收的弱引用订阅
+     *
+     * @param subscriptions
+     * @return 是否有订阅被移除
+     */
+    public boolean removeDeadSubscriptions(Subscription[] subscriptions) {
+        boolean removed = false;
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.isWeak() || subscription.getSubscriber() != null) {
+                continue;
+            }
+            CopyOnWriteArrayList<Subscription> subscriptionList = mSubcriberMap.get(subscription.mEventType);
+            if (subscriptionList == null) {
+                continue;
             }
+            synchronized (subscriptionList) {
+                if (subscriptionList.remove(subscription)) {
+                    removed = true;
+                    removeIfEmpty(subscription.mEventType, subscriptionList);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return 当前注册的全部订阅者,包括还未被回收的弱引用订阅者
+     */
+    public List<Object> getSubscribers() {
+        List<Object> subscribers = new ArrayList<Object>(mSubscriberEventTypes.keySet());
+        synchronized (mWeakSubscriberEventTypes) {
+            subscribers.addAll(mWeakSubscriberEventTypes.keySet());
         }
+        return subscribers;
     }
 
     /**
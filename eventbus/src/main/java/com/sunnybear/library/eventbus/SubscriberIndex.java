@@ -0,0 +1,20 @@
+package com.sunnybear.library.eventbus;
+
+/**
+ * 订阅者索引,由eventbus-compiler在编译期为包含{@see Subcriber}函数的类生成,
+ * 类名为订阅者类名加上{@link #CLASS_SUFFIX}后缀.
+ * 注册时优先通过索引获取订阅函数,避免在运行时遍历订阅者的整个继承链.
+ */
+public interface SubscriberIndex {
+    /**
+     * 生成的索引类名后缀
+     */
+    String CLASS_SUFFIX = "$$SubscriberIndex";
+
+    /**
+     * 获取订阅者(包含其父类)中所有使用{@see Subcriber}标识的函数
+     *
+     * @return 订阅函数信息
+     */
+    SubscriberMethodInfo[] getSubscriberMethods();
+}
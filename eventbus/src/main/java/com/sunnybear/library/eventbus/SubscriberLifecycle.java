@@ -0,0 +1,14 @@
+package com.sunnybear.library.eventbus;
+
+/**
+ * 自定义订阅者的生命周期,用于{@see EventBusHelper#getLeakedSubscribers()}的泄露诊断.
+ * Activity和android.app.Fragment不需要实现该接口,EventBus会根据它们自身的状态判断生命周期是否结束;
+ * support包的Fragment、Dialog、PopupWindow等其他订阅者需要实现该接口才能参与诊断
+ */
+public interface SubscriberLifecycle {
+
+    /**
+     * @return 订阅者的生命周期是否已经结束, 结束后仍然注册在EventBus中即视为泄露
+     */
+    boolean isLifecycleEnded();
+}
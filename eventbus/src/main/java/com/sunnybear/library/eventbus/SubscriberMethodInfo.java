@@ -0,0 +1,57 @@
+package com.sunnybear.library.eventbus;
+
+/**
+ * 订阅者索引中描述一个订阅函数的信息,对应{@see Subcriber}注解上的各项属性
+ */
+public final class SubscriberMethodInfo {
+    /**
+     * 函数名
+     */
+    public final String methodName;
+    /**
+     * 函数参数类型(未装箱)
+     */
+    public final Class<?> paramType;
+    /**
+     * 事件的tag
+     */
+    public final String tag;
+    /**
+     * 执行事件的线程模型
+     */
+    public final ThreadMode threadMode;
+    /**
+     * 是否只投递最新的事件
+     */
+    public final boolean latestOnly;
+    /**
+     * 是否接收粘性事件
+     */
+    public final boolean sticky;
+    /**
+     * 投递优先级
+     */
+    public final int priority;
+    /**
+     * ThreadMode.MAIN_DEADLINE事件的最长等待时间,单位毫秒
+     */
+    public final long deadlineMillis;
+    /**
+     * 直接调用订阅函数的调用器
+     */
+    public final EventInvoker invoker;
+
+    public SubscriberMethodInfo(String methodName, Class<?> paramType, String tag, ThreadMode threadMode,
+                                boolean latestOnly, boolean sticky, int priority, long deadlineMillis,
+                                EventInvoker invoker) {
+        this.methodName = methodName;
+        this.paramType = paramType;
+        this.tag = tag;
+        this.threadMode = threadMode;
+        this.latestOnly = latestOnly;
+        this.sticky = sticky;
+        this.priority = priority;
+        this.deadlineMillis = deadlineMillis;
+        this.invoker = invoker;
+    }
+}
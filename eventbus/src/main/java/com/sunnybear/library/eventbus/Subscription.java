@@ -16,43 +16,133 @@
 
 package com.sunnybear.library.eventbus;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
 
 /**
- * 订阅者对象,包含订阅者和目标方法
+ * 订阅者对象,包含订阅者和目标方法.
+ * 弱引用订阅只持有订阅者的弱引用,订阅者被回收后{@link #getSubscriber()}返回null,在分发时被清除
  * 
  * @author mrsimple
  */
 public class Subscription {
     /**
-     * 订阅者对象
+     * 订阅者对象,弱引用订阅时为null
+     *
+     * @deprecated 弱引用订阅时为null, 使用{@link #getSubscriber()}
      */
+    @Deprecated
     public Object subscriber;
     /**
-     * 接受者的方法
+     * 弱引用订阅的订阅者
+     */
+    private final WeakReference<Object> mWeakSubscriber;
+    /**
+     * 订阅者的hashCode,订阅者被回收后保持不变
+     */
+    private final int mSubscriberHashCode;
+    /**
+     * 接受者的方法,通过订阅者索引注册时为null
      */
     public Method targetMethod;
+    /**
+     * 订阅函数的调用器
+     */
+    public EventInvoker invoker;
     /**
      * 执行事件的线程模型
      */
     public ThreadMode threadMode;
+    /**
+     * 是否只投递最新的事件
+     */
+    public boolean latestOnly;
+    /**
+     * 是否接收粘性事件
+     */
+    public boolean sticky;
+    /**
+     * 投递优先级,数值越大越先执行
+     */
+    public int priority;
+    /**
+     * ThreadMode.MAIN_DEADLINE事件的最长等待时间,单位毫秒
+     */
+    public long deadlineMillis;
+    /**
+     * ThreadMode.ASYNC事件的执行器,register时指定,同一个订阅者的全部订阅共用一个串行执行器;
+     * 为null时使用EventBus的异步事件处理器
+     */
+    public Executor executor;
+    /**
+     * 订阅函数信息
+     */
+    final TargetMethod mTargetMethod;
+    /**
+     * 订阅的事件类型
+     */
+    final EventType mEventType;
 
     /**
      * @param subscriber
      * @param method
      */
     public Subscription(Object subscriber, TargetMethod targetMethod) {
-        this.subscriber = subscriber;
+        this(subscriber, targetMethod, false);
+    }
+
+    /**
+     * @param subscriber
+     * @param targetMethod
+     * @param weak 是否只持有订阅者的弱引用
+     */
+    public Subscription(Object subscriber, TargetMethod targetMethod, boolean weak) {
+        this(subscriber, targetMethod, weak, null);
+    }
+
+    /**
+     * @param subscriber
+     * @param targetMethod
+     * @param weak 是否只持有订阅者的弱引用
+     * @param executor ThreadMode.ASYNC事件的执行器,可以为null
+     */
+    public Subscription(Object subscriber, TargetMethod targetMethod, boolean weak, Executor executor) {
+        this.subscriber = weak ? null : subscriber;
+        this.mWeakSubscriber = weak ? new WeakReference<Object>(subscriber) : null;
+        this.mSubscriberHashCode = subscriber == null ? 0 : subscriber.hashCode();
         this.targetMethod = targetMethod.method;
+        this.invoker = targetMethod.invoker;
         this.threadMode = targetMethod.threadMode;
+        this.latestOnly = targetMethod.latestOnly;
+        this.sticky = targetMethod.sticky;
+        this.priority = targetMethod.priority;
+        this.deadlineMillis = targetMethod.deadlineMillis;
+        this.executor = executor;
+        this.mTargetMethod = targetMethod;
+        this.mEventType = new EventType(targetMethod.eventType, targetMethod.tag);
+    }
+
+    /**
+     * @return 订阅者, 弱引用订阅的订阅者已被回收时返回null
+     */
+    public Object getSubscriber() {
+        return mWeakSubscriber != null ? mWeakSubscriber.get() : this.subscriber;
+    }
+
+    /**
+     * @return 是否为弱引用订阅
+     */
+    public boolean isWeak() {
+        return mWeakSubscriber != null;
     }
 
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((subscriber == null) ? 0 : subscriber.hashCode());
-        result = prime * result + ((targetMethod == null) ? 0 : targetMethod.hashCode());
+        result = prime * result + mSubscriberHashCode;
+        result = prime * result + ((mTargetMethod == null) ? 0 : mTargetMethod.hashCode());
         return result;
     }
 
@@ -65,15 +155,17 @@ public class Subscription {
         if (getClass() != obj.getClass())
             return false;
         Subscription other = (Subscription) obj;
+        Object subscriber = getSubscriber();
+        Object otherSubscriber = other.getSubscriber();
         if (subscriber == null) {
-            if (other.subscriber != null)
+            if (otherSubscriber != null)
                 return false;
-        } else if (!subscriber.equals(other.subscriber))
+        } else if (!subscriber.equals(otherSubscriber))
             return false;
-        if (targetMethod == null) {
-            if (other.targetMethod != null)
+        if (mTargetMethod == null) {
+            if (other.mTargetMethod != null)
                 return false;
-        } else if (!targetMethod.equals(other.targetMethod))
+        } else if (!mTargetMethod.equals(other.mTargetMethod))
             return false;
         return true;
     }
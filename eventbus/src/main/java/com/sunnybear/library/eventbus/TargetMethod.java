@@ -25,27 +25,62 @@ import java.lang.reflect.Method;
  */
  class TargetMethod {
     /**
-     * 订阅者的目标函数
+     * 订阅者的目标函数,通过订阅者索引创建时为null
      */
     public Method method;
+    /**
+     * 函数名
+     */
+    public String methodName;
+    /**
+     * 订阅函数的调用器
+     */
+    public EventInvoker invoker;
     /**
      * 事件类型
      */
     public Class<?> eventType;
+    /**
+     * 事件的tag
+     */
+    public String tag;
     /**
      * 处理事件的线程模式
      */
     public ThreadMode threadMode;
+    /**
+     * 是否只投递最新的事件
+     */
+    public boolean latestOnly;
+    /**
+     * 是否接收粘性事件
+     */
+    public boolean sticky;
+    /**
+     * 投递优先级,数值越大越先执行
+     */
+    public int priority;
+    /**
+     * ThreadMode.MAIN_DEADLINE事件的最长等待时间,单位毫秒
+     */
+    public long deadlineMillis;
 
     /**
-     * @param md
-     * @param mode
+     * @param md        订阅函数,通过订阅者索引创建时为null
+     * @param clazz     事件类型(已装箱)
+     * @param info      订阅函数信息
      */
-    public TargetMethod(Method md, Class<?> clazz, ThreadMode mode) {
+    public TargetMethod(Method md, Class<?> clazz, SubscriberMethodInfo info) {
         this.method = md;
-        this.method.setAccessible(true);
+        this.methodName = info.methodName;
+        this.invoker = info.invoker;
         this.eventType = clazz;
-        this.threadMode = mode;
+        this.tag = info.tag;
+        this.threadMode = info.threadMode;
+        this.latestOnly = info.latestOnly;
+        this.sticky = info.sticky;
+        this.priority = info.priority;
+        this.deadlineMillis = info.deadlineMillis;
     }
 
     @Override
@@ -53,7 +88,7 @@ import java.lang.reflect.Method;
         final int prime = 31;
         int result = 1;
         result = prime * result + ((eventType == null) ? 0 : eventType.hashCode());
-        result = prime * result + ((method == null) ? 0 : method.getName().hashCode());
+        result = prime * result + ((methodName == null) ? 0 : methodName.hashCode());
         return result;
     }
 
@@ -71,10 +106,10 @@ import java.lang.reflect.Method;
                 return false;
         } else if (!eventType.equals(other.eventType))
             return false;
-        if (method == null) {
-            if (other.method != null)
+        if (methodName == null) {
+            if (other.methodName != null)
                 return false;
-        } else if (!method.getName().equals(other.method.getName()))
+        } else if (!methodName.equals(other.methodName))
             return false;
         return true;
     }
@@ -26,6 +26,11 @@ public enum ThreadMode {
      * 将事件执行在UI线程
      */
     MAIN,
+    /**
+     * 将事件执行在UI线程,在队列中等待超过订阅函数deadlineMillis的事件会被丢弃并计数,
+     * 适用于进度条等过时后没有意义的事件
+     */
+    MAIN_DEADLINE,
     /**
      * 在发布线程执行
      */
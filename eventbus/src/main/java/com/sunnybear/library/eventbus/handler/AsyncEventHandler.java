@@ -19,14 +19,18 @@ package com.sunnybear.library.eventbus.handler;
 import android.os.Handler;
 import android.os.HandlerThread;
 
+import com.sunnybear.library.eventbus.EventBusMetrics;
 import com.sunnybear.library.eventbus.Subscription;
+import com.sunnybear.library.eventbus.ThreadMode;
+
+import java.util.List;
 
 /**
  * 事件的异步处理,将事件的处理函数执行在子线程中
  * 
  * @author mrsimple
  */
-public class AsyncEventHandler implements EventHandler {
+public class AsyncEventHandler implements BatchEventHandler {
 
     /**
      * 事件分发线程
@@ -50,15 +54,42 @@ public class AsyncEventHandler implements EventHandler {
      * @param event
      */
     public void handleEvent(final Subscription subscription, final Object event) {
+        final long postTimeNanos = EventBusMetrics.isEnabled() ? System.nanoTime() : 0;
         mDispatcherThread.post(new Runnable() {
 
             @Override
             public void run() {
+                if (postTimeNanos != 0 && EventBusMetrics.isEnabled()) {
+                    EventBusMetrics.getDefault().recordQueueWait(ThreadMode.ASYNC, System.nanoTime() - postTimeNanos);
+                }
                 mEventHandler.handleEvent(subscription, event);
             }
         });
     }
 
+    /**
+     * 一批事件在异步线程中作为一个任务依次执行
+     *
+     * @param subscription
+     * @param events
+     */
+    @Override
+    public void handleEvents(final Subscription subscription, final List<?> events) {
+        final long postTimeNanos = EventBusMetrics.isEnabled() ? System.nanoTime() : 0;
+        mDispatcherThread.post(new Runnable() {
+
+            @Override
+            public void run() {
+                if (postTimeNanos != 0 && EventBusMetrics.isEnabled()) {
+                    EventBusMetrics.getDefault().recordQueueWait(ThreadMode.ASYNC, System.nanoTime() - postTimeNanos);
+                }
+                for (int i = 0; i < events.size(); i++) {
+                    mEventHandler.handleEvent(subscription, events.get(i));
+                }
+            }
+        });
+    }
+
     /**
      * @author mrsimple
      */
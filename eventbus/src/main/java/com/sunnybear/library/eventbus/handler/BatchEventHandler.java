@@ -0,0 +1,19 @@
+package com.sunnybear.library.eventbus.handler;
+
+import com.sunnybear.library.eventbus.Subscription;
+
+import java.util.List;
+
+/**
+ * 可以一次处理一批事件的事件处理器,postAll时EventBus会把同一个订阅的全部事件一次交给它,
+ * 例如UI线程只需要一个消息就能处理整批事件.没有实现该接口的处理器会逐个调用{@see #handleEvent}
+ */
+public interface BatchEventHandler extends EventHandler {
+    /**
+     * 按顺序处理一批事件
+     *
+     * @param subscription 订阅对象
+     * @param events       待处理的事件
+     */
+    void handleEvents(Subscription subscription, List<?> events);
+}
@@ -16,10 +16,9 @@
 
 package com.sunnybear.library.eventbus.handler;
 
+import com.sunnybear.library.eventbus.EventBusMetrics;
 import com.sunnybear.library.eventbus.Subscription;
 
-import java.lang.reflect.InvocationTargetException;
-
 /**
  * 事件在哪个线程post,事件的接收就在哪个线程
  *
@@ -33,18 +32,28 @@ public class DefaultEventHandler implements EventHandler {
      * @param event
      */
     public void handleEvent(Subscription subscription, Object event) {
-        if (subscription == null
-                || subscription.subscriber == null) {
+        if (subscription == null) {
+            return;
+        }
+        // 弱引用订阅的订阅者可能已经被回收
+        Object subscriber = subscription.getSubscriber();
+        if (subscriber == null) {
+            return;
+        }
+        if (!EventBusMetrics.isEnabled()) {
+            invoke(subscription, subscriber, event);
             return;
         }
+        long start = System.nanoTime();
+        invoke(subscription, subscriber, event);
+        EventBusMetrics.getDefault().recordSubscriberTime(subscription, subscriber, System.nanoTime() - start);
+    }
+
+    private void invoke(Subscription subscription, Object subscriber, Object event) {
         try {
             // 执行
-            subscription.targetMethod.invoke(subscription.subscriber, event);
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
+            subscription.invoker.invoke(subscriber, event);
+        } catch (Exception e) {
             e.printStackTrace();
         }
     }
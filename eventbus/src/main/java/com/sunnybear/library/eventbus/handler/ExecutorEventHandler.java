@@ -0,0 +1,82 @@
+package com.sunnybear.library.eventbus.handler;
+
+import android.util.Log;
+
+import com.sunnybear.library.eventbus.EventBusMetrics;
+import com.sunnybear.library.eventbus.Subscription;
+import com.sunnybear.library.eventbus.ThreadMode;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 将ThreadMode.ASYNC的订阅函数执行在订阅者register时指定的执行器上,见{@see Subscription#executor}.
+ * 同一个订阅者的事件按post顺序串行执行,执行器拒绝的事件被丢弃并计数
+ */
+public class ExecutorEventHandler implements BatchEventHandler {
+    private static final String TAG = ExecutorEventHandler.class.getSimpleName();
+
+    private final AtomicLong mRejectedCount = new AtomicLong();
+
+    /**
+     * 事件处理器
+     */
+    EventHandler mEventHandler = new DefaultEventHandler();
+
+    @Override
+    public void handleEvent(final Subscription subscription, final Object event) {
+        final long postTimeNanos = EventBusMetrics.isEnabled() ? System.nanoTime() : 0;
+        execute(subscription, new Runnable() {
+
+            @Override
+            public void run() {
+                recordQueueWait(postTimeNanos);
+                mEventHandler.handleEvent(subscription, event);
+            }
+        }, 1);
+    }
+
+    /**
+     * 一批事件在执行器中作为一个任务依次执行
+     *
+     * @param subscription
+     * @param events
+     */
+    @Override
+    public void handleEvents(final Subscription subscription, final List<?> events) {
+        final long postTimeNanos = EventBusMetrics.isEnabled() ? System.nanoTime() : 0;
+        execute(subscription, new Runnable() {
+
+            @Override
+            public void run() {
+                recordQueueWait(postTimeNanos);
+                for (int i = 0; i < events.size(); i++) {
+                    mEventHandler.handleEvent(subscription, events.get(i));
+                }
+            }
+        }, events.size());
+    }
+
+    /**
+     * @return 执行器拒绝而被丢弃的事件数
+     */
+    public long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    private void execute(Subscription subscription, Runnable task, int eventCount) {
+        try {
+            subscription.executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            mRejectedCount.addAndGet(eventCount);
+            Log.w(TAG, "executor of " + subscription.getSubscriber() + " rejected " + eventCount + " event(s).");
+        }
+    }
+
+    private static void recordQueueWait(long postTimeNanos) {
+        if (postTimeNanos != 0 && EventBusMetrics.isEnabled()) {
+            EventBusMetrics.getDefault().recordQueueWait(ThreadMode.ASYNC, System.nanoTime() - postTimeNanos);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.sunnybear.library.eventbus.handler;
+
+import com.sunnybear.library.eventbus.EventBusMetrics;
+import com.sunnybear.library.eventbus.Subscription;
+import com.sunnybear.library.eventbus.ThreadMode;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 将订阅函数执行在有界线程池中的异步事件处理器,可以通过EventBusHelper.setAsyncEventHandler替换默认的{@see AsyncEventHandler},
+ * 避免一个耗时的订阅函数阻塞全部异步事件.
+ * <p>
+ * 等待执行和正在执行的事件数超过队列容量时按照{@see OverflowPolicy}处理;
+ * 开启serialPerSubscriber后同一个订阅者的事件按post顺序依次执行,不同订阅者之间仍然并行.
+ * 串行模式下溢出事件不能在post线程执行,否则会与订阅者队列中的事件并发且乱序:
+ * 非工作线程中的CALLER_RUNS退化为BLOCK,保证队列容量的上限;只有工作线程中重入的post(CALLER_RUNS和BLOCK)
+ * 追加到订阅者的队列末尾,不占用队列容量,避免线程池自身死锁.
+ */
+public class ThreadPoolEventHandler implements EventHandler {
+    private static final int DEFAULT_QUEUE_CAPACITY = 128;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * 队列已满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 阻塞post线程直到队列有空位(背压),在工作线程中post时退化为CALLER_RUNS,避免线程池自身死锁
+         */
+        BLOCK,
+        /**
+         * 直接在post线程执行,串行模式下在非工作线程中退化为BLOCK
+         */
+        CALLER_RUNS,
+        /**
+         * 丢弃新事件并计数
+         */
+        DISCARD
+    }
+
+    private final ThreadPoolExecutor mExecutor;
+    private final Semaphore mPermits;
+    private final int mQueueCapacity;
+    private final OverflowPolicy mOverflowPolicy;
+    private final boolean mSerialPerSubscriber;
+    /**
+     * 串行模式下每个订阅者的事件队列,队列执行完后移除
+     */
+    private final Map<Object, SerialQueue> mSerialQueues = new HashMap<Object, SerialQueue>();
+
+    private final AtomicLong mCompletedCount = new AtomicLong();
+    private final AtomicLong mDiscardedCount = new AtomicLong();
+    private final AtomicLong mCallerRunsCount = new AtomicLong();
+    private final AtomicLong mOverflowQueuedCount = new AtomicLong();
+    private final AtomicLong mTotalLatencyNanos = new AtomicLong();
+    private final AtomicLong mMaxLatencyNanos = new AtomicLong();
+
+    /**
+     * 事件处理器
+     */
+    EventHandler mEventHandler = new DefaultEventHandler();
+
+    /**
+     * @param threadCount 工作线程数
+     */
+    public ThreadPoolEventHandler(int threadCount) {
+        this(threadCount, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.CALLER_RUNS, false);
+    }
+
+    /**
+     * @param threadCount         工作线程数
+     * @param queueCapacity       等待执行和正在执行的事件数上限
+     * @param overflowPolicy      超过上限时的处理策略
+     * @param serialPerSubscriber 同一个订阅者的事件是否串行执行
+     */
+    public ThreadPoolEventHandler(int threadCount, int queueCapacity, OverflowPolicy overflowPolicy,
+                                  boolean serialPerSubscriber) {
+        if (threadCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("threadCount and queueCapacity must be positive.");
+        }
+        mQueueCapacity = queueCapacity;
+        mOverflowPolicy = overflowPolicy;
+        mSerialPerSubscriber = serialPerSubscriber;
+        mPermits = new Semaphore(queueCapacity);
+        // 容量由mPermits控制,线程池自身的队列不需要限制
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WorkerThreadFactory());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 将订阅的函数执行在线程池中
+     *
+     * @param subscription
+     * @param event
+     */
+    @Override
+    public void handleEvent(Subscription subscription, Object event) {
+        Object subscriber = subscription.getSubscriber();
+        if (subscriber == null) {
+            return;
+        }
+        EventTask task = new EventTask(subscription, event);
+        if (!mPermits.tryAcquire()) {
+            OverflowPolicy policy = mOverflowPolicy;
+            if (policy == OverflowPolicy.BLOCK && isWorkerThread()) {
+                policy = OverflowPolicy.CALLER_RUNS;
+            } else if (policy == OverflowPolicy.CALLER_RUNS && mSerialPerSubscriber && !isWorkerThread()) {
+                // 在post线程执行会与订阅者队列中的事件并发且乱序,追加到队列又会使队列无限增长
+                policy = OverflowPolicy.BLOCK;
+            }
+            switch (policy) {
+                case DISCARD:
+                    mDiscardedCount.incrementAndGet();
+                    return;
+                case CALLER_RUNS:
+                    if (mSerialPerSubscriber) {
+                        // 工作线程中重入的post,阻塞会使线程池死锁
+                        mOverflowQueuedCount.incrementAndGet();
+                        task.mHoldsPermit = false;
+                        enqueueSerial(subscriber, task);
+                        return;
+                    }
+                    mCallerRunsCount.incrementAndGet();
+                    mEventHandler.handleEvent(subscription, event);
+                    return;
+                default:
+                    mPermits.acquireUninterruptibly();
+                    break;
+            }
+        }
+        if (mSerialPerSubscriber) {
+            enqueueSerial(subscriber, task);
+        } else {
+            mExecutor.execute(task);
+        }
+    }
+
+    private void enqueueSerial(Object subscriber, EventTask task) {
+        synchronized (mSerialQueues) {
+            SerialQueue queue = mSerialQueues.get(subscriber);
+            if (queue == null) {
+                queue = new SerialQueue(subscriber);
+                mSerialQueues.put(subscriber, queue);
+            }
+            queue.mTasks.offer(task);
+            if (!queue.mActive) {
+                queue.mActive = true;
+                mExecutor.execute(queue);
+            }
+        }
+    }
+
+    private boolean isWorkerThread() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof WorkerThread && ((WorkerThread) thread).mOwner == this;
+    }
+
+    /**
+     * @return 等待执行和正在执行的事件数
+     */
+    public int getQueueDepth() {
+        return mQueueCapacity - mPermits.availablePermits();
+    }
+
+    /**
+     * @return 已执行完的事件数
+     */
+    public long getCompletedCount() {
+        return mCompletedCount.get();
+    }
+
+    /**
+     * @return 队列已满被丢弃的事件数
+     */
+    public long getDiscardedCount() {
+        return mDiscardedCount.get();
+    }
+
+    /**
+     * @return 队列已满在post线程执行的事件数
+     */
+    public long getCallerRunsCount() {
+        return mCallerRunsCount.get();
+    }
+
+    /**
+     * @return 串行模式下队列已满时工作线程追加到订阅者队列的事件数
+     */
+    public long getOverflowQueuedCount() {
+        return mOverflowQueuedCount.get();
+    }
+
+    /**
+     * @return 事件从post到开始执行的平均等待时间,单位毫秒
+     */
+    public double getAverageLatencyMillis() {
+        long completed = mCompletedCount.get();
+        return completed == 0 ? 0 : mTotalLatencyNanos.get() / 1e6 / completed;
+    }
+
+    /**
+     * @return 事件从post到开始执行的最大等待时间,单位毫秒
+     */
+    public double getMaxLatencyMillis() {
+        return mMaxLatencyNanos.get() / 1e6;
+    }
+
+    /**
+     * 关闭线程池,已经提交的事件仍会执行
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    private void recordLatency(long latencyNanos) {
+        mTotalLatencyNanos.addAndGet(latencyNanos);
+        long max = mMaxLatencyNanos.get();
+        while (latencyNanos > max && !mMaxLatencyNanos.compareAndSet(max, latencyNanos)) {
+            max = mMaxLatencyNanos.get();
+        }
+    }
+
+    /**
+     * 一次事件处理
+     */
+    private final class EventTask implements Runnable {
+        final Subscription mSubscription;
+        final Object mEvent;
+        final long mPostTimeNanos = System.nanoTime();
+        /**
+         * 是否占用了队列容量,串行模式下的溢出事件不占用
+         */
+        boolean mHoldsPermit = true;
+
+        EventTask(Subscription subscription, Object event) {
+            mSubscription = subscription;
+            mEvent = event;
+        }
+
+        @Override
+        public void run() {
+            long latencyNanos = System.nanoTime() - mPostTimeNanos;
+            recordLatency(latencyNanos);
+            if (EventBusMetrics.isEnabled()) {
+                EventBusMetrics.getDefault().recordQueueWait(ThreadMode.ASYNC, latencyNanos);
+            }
+            try {
+                mEventHandler.handleEvent(mSubscription, mEvent);
+            } finally {
+                mCompletedCount.incrementAndGet();
+                if (mHoldsPermit) {
+                    mPermits.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * 同一个订阅者的事件队列,在线程池中依次执行
+     */
+    private final class SerialQueue implements Runnable {
+        final Object mSubscriber;
+        final Queue<EventTask> mTasks = new ArrayDeque<EventTask>();
+        boolean mActive;
+
+        SerialQueue(Object subscriber) {
+            mSubscriber = subscriber;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                EventTask task;
+                synchronized (mSerialQueues) {
+                    task = mTasks.poll();
+                    if (task == null) {
+                        mActive = false;
+                        mSerialQueues.remove(mSubscriber);
+                        return;
+                    }
+                }
+                task.run();
+            }
+        }
+    }
+
+    private final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new WorkerThread(ThreadPoolEventHandler.this, runnable,
+                    ThreadPoolEventHandler.class.getSimpleName() + "-" + mCount.incrementAndGet());
+        }
+    }
+
+    private static final class WorkerThread extends Thread {
+        final ThreadPoolEventHandler mOwner;
+
+        WorkerThread(ThreadPoolEventHandler owner, Runnable runnable, String name) {
+            super(runnable, name);
+            mOwner = owner;
+        }
+    }
+}
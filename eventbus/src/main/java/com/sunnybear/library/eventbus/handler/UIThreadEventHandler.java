@@ -18,15 +18,38 @@ package com.sunnybear.library.eventbus.handler;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
+import com.sunnybear.library.eventbus.EventBusMetrics;
 import com.sunnybear.library.eventbus.Subscription;
+import com.sunnybear.library.eventbus.ThreadMode;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * 事件处理在UI线程,通过Handler将事件处理post到UI线程的消息队列
+ * 事件处理在UI线程,通过Handler将事件处理post到UI线程的消息队列.
+ * <p>
+ * 待处理的事件先进入队列,同一时间消息队列中最多只有一个消息,在一个消息中依次处理队列中的事件;
+ * 单个消息的处理时间超过帧预算时,剩余事件留到下一个消息,让出主线程处理绘制和输入.
+ * 订阅函数声明了latestOnly时,队列中未处理的事件会被新事件替换.
+ * ThreadMode.MAIN_DEADLINE的事件在队列中等待超过订阅函数的deadlineMillis时被丢弃,不会执行过时的状态更新.
  *
  * @author mrsimple
  */
-public class UIThreadEventHandler implements EventHandler {
+public class UIThreadEventHandler implements BatchEventHandler {
+    /**
+     * 默认的帧预算,单位毫秒
+     */
+    private static final long DEFAULT_FRAME_BUDGET_MILLIS = 8;
+    /**
+     * ThreadMode.MAIN_DEADLINE订阅函数没有指定deadlineMillis时的最长等待时间,单位毫秒
+     */
+    public static final long DEFAULT_DEADLINE_MILLIS = 100;
 
     /**
      * ui handler
@@ -36,18 +59,203 @@ public class UIThreadEventHandler implements EventHandler {
      *
      */
     DefaultEventHandler mEventHandler = new DefaultEventHandler();
+    /**
+     * 一个消息中处理事件的时间预算
+     */
+    private final long mFrameBudgetMillis;
+    /**
+     * 待处理的事件
+     */
+    private final Queue<PendingEvent> mPendingEvents = new ArrayDeque<PendingEvent>();
+    /**
+     * latestOnly订阅函数还未处理的事件
+     */
+    private final Map<Subscription, PendingEvent> mLatestEvents = new HashMap<Subscription, PendingEvent>();
+    /**
+     * 消息队列中是否已经有处理事件的消息
+     */
+    private boolean mDrainScheduled;
+    /**
+     * 超过deadline被丢弃的事件数
+     */
+    private final AtomicLong mStaleDroppedCount = new AtomicLong();
+
+    private final Runnable mDrainRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            drainPendingEvents();
+        }
+    };
+
+    public UIThreadEventHandler() {
+        this(DEFAULT_FRAME_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param frameBudgetMillis 一个消息中处理事件的时间预算,单位毫秒
+     */
+    public UIThreadEventHandler(long frameBudgetMillis) {
+        mFrameBudgetMillis = frameBudgetMillis;
+    }
 
     /**
      * @param subscription
      * @param event
      */
     public void handleEvent(final Subscription subscription, final Object event) {
-        mUIHandler.post(new Runnable() {
+        synchronized (mPendingEvents) {
+            enqueue(subscription, event);
+            if (mDrainScheduled) {
+                return;
+            }
+            mDrainScheduled = true;
+        }
+        mUIHandler.post(mDrainRunnable);
+    }
+
+    /**
+     * 一批事件只加锁一次,并且最多发送一个消息
+     *
+     * @param subscription
+     * @param events
+     */
+    @Override
+    public void handleEvents(Subscription subscription, List<?> events) {
+        synchronized (mPendingEvents) {
+            for (int i = 0; i < events.size(); i++) {
+                enqueue(subscription, events.get(i));
+            }
+            if (mDrainScheduled) {
+                return;
+            }
+            mDrainScheduled = true;
+        }
+        mUIHandler.post(mDrainRunnable);
+    }
+
+    /**
+     * @return ThreadMode.MAIN_DEADLINE事件超过deadline被丢弃的数量
+     */
+    public long getStaleDroppedCount() {
+        return mStaleDroppedCount.get();
+    }
+
+    /**
+     * 将事件加入待处理队列,需要持有mPendingEvents锁
+     *
+     * @param subscription
+     * @param event
+     */
+    private void enqueue(Subscription subscription, Object event) {
+        if (subscription.latestOnly) {
+            PendingEvent pending = mLatestEvents.get(subscription);
+            if (pending != null) {
+                // 替换还未处理的旧事件,deadline从新事件开始计算
+                pending.event = event;
+                pending.deadlineNanos = deadlineOf(subscription);
+                return;
+            }
+            pending = new PendingEvent(subscription, event);
+            mLatestEvents.put(subscription, pending);
+            mPendingEvents.offer(pending);
+        } else {
+            mPendingEvents.offer(new PendingEvent(subscription, event));
+        }
+    }
+
+    /**
+     * @param subscription
+     * @return 事件的deadline, 不是ThreadMode.MAIN_DEADLINE时为0
+     */
+    private static long deadlineOf(Subscription subscription) {
+        if (subscription.threadMode != ThreadMode.MAIN_DEADLINE) {
+            return 0;
+        }
+        long deadlineMillis = subscription.deadlineMillis > 0 ? subscription.deadlineMillis : DEFAULT_DEADLINE_MILLIS;
+        return System.nanoTime() + deadlineMillis * 1000000L;
+    }
+
+    /**
+     * 在UI线程中处理队列中的事件,直到队列为空或者超出帧预算
+     */
+    private void drainPendingEvents() {
+        final long deadline = SystemClock.uptimeMillis() + mFrameBudgetMillis;
+        while (true) {
+            PendingEvent pending;
+            Object event;
+            long postTimeNanos;
+            synchronized (mPendingEvents) {
+                pending = mPendingEvents.poll();
+                if (pending == null) {
+                    mDrainScheduled = false;
+                    return;
+                }
+                if (pending.subscription.latestOnly) {
+                    mLatestEvents.remove(pending.subscription);
+                }
+                event = pending.event;
+                postTimeNanos = pending.postTimeNanos;
+            }
+            if (pending.deadlineNanos != 0 && System.nanoTime() - pending.deadlineNanos > 0) {
+                dropStaleEvent(pending.subscription);
+                continue;
+            }
+            if (postTimeNanos != 0 && EventBusMetrics.isEnabled()) {
+                EventBusMetrics.getDefault().recordQueueWait(pending.subscription.threadMode,
+                        System.nanoTime() - postTimeNanos);
+            }
+            mEventHandler.handleEvent(pending.subscription, event);
 
-            @Override
-            public void run() {
-                mEventHandler.handleEvent(subscription, event);
+            if (SystemClock.uptimeMillis() >= deadline) {
+                synchronized (mPendingEvents) {
+                    if (mPendingEvents.isEmpty()) {
+                        mDrainScheduled = false;
+                        return;
+                    }
+                }
+                // 超出帧预算,剩余事件在下一个消息中处理
+                mUIHandler.post(mDrainRunnable);
+                return;
             }
-        });
+        }
+    }
+
+    /**
+     * 丢弃超过deadline的事件并计数
+     *
+     * @param subscription
+     */
+    private void dropStaleEvent(Subscription subscription) {
+        mStaleDroppedCount.incrementAndGet();
+        if (EventBusMetrics.isEnabled()) {
+            Object subscriber = subscription.getSubscriber();
+            if (subscriber != null) {
+                EventBusMetrics.getDefault().recordStaleDrop(subscription, subscriber);
+            }
+        }
+    }
+
+    /**
+     * 待处理的事件
+     */
+    private static final class PendingEvent {
+        final Subscription subscription;
+        Object event;
+        /**
+         * 进入队列的时间,只在开启统计时记录;latestOnly替换事件时保留最早的时间
+         */
+        final long postTimeNanos;
+        /**
+         * 超过该时间的事件被丢弃,0表示没有deadline
+         */
+        long deadlineNanos;
+
+        PendingEvent(Subscription subscription, Object event) {
+            this.subscription = subscription;
+            this.event = event;
+            this.postTimeNanos = EventBusMetrics.isEnabled() ? System.nanoTime() : 0;
+            this.deadlineNanos = deadlineOf(subscription);
+        }
     }
 }
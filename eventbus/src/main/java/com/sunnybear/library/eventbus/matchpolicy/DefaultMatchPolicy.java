@@ -56,7 +56,8 @@ public class DefaultMatchPolicy implements MatchPolicy {
         }
         Class<?>[] interfacesClasses = eventClass.getInterfaces();
         for (Class<?> interfaceClass : interfacesClasses) {
-            if (!eventTypes.contains(interfaceClass)) {
+            // 菱形继承的接口只添加一次,否则订阅函数会收到重复的事件
+            if (!eventTypes.contains(new EventType(interfaceClass, tag))) {
                 eventTypes.add(new EventType(interfaceClass, tag));
                 addInterfaces(eventTypes, interfaceClass, tag);
             }
@@ -0,0 +1,78 @@
+package com.sunnybear.library.eventbus.matchpolicy;
+
+import com.sunnybear.library.eventbus.EventType;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 与{@see DefaultMatchPolicy}匹配相同的类型:事件类型自身、全部父类以及它们实现的全部接口,顺序也相同.
+ * 区别是每个事件类型的类型闭包(去重后)只计算一次并缓存为数组,之后的查找不再遍历继承关系,
+ * 订阅关系变化使订阅缓存失效后,重新查找订阅的开销接近{@see StrictMatchPolicy}.
+ * 需要通过EventBusHelper.setMatchPolicy开启
+ */
+public class HierarchyMatchPolicy implements MatchPolicy {
+    /**
+     * 类型闭包缓存的最大类数量
+     */
+    private static final int MAX_CACHE_SIZE = 256;
+    /**
+     * 事件类型-类型闭包,数组创建后不再修改.
+     * 缓存超过上限时淘汰任意一项,避免动态加载的事件类长期驻留
+     */
+    private final Map<Class<?>, Class<?>[]> mTypeClosures = new ConcurrentHashMap<Class<?>, Class<?>[]>();
+
+    @Override
+    public List<EventType> findMatchEventTypes(EventType type, Object aEvent) {
+        Class<?>[] typeClosure = getTypeClosure(aEvent.getClass());
+        EventType[] result = new EventType[typeClosure.length];
+        for (int i = 0; i < typeClosure.length; i++) {
+            result[i] = new EventType(typeClosure[i], type.tag);
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * @param eventClass
+     * @return 事件类型的类型闭包
+     */
+    private Class<?>[] getTypeClosure(Class<?> eventClass) {
+        Class<?>[] typeClosure = mTypeClosures.get(eventClass);
+        if (typeClosure == null) {
+            Set<Class<?>> types = new LinkedHashSet<Class<?>>();
+            for (Class<?> clazz = eventClass; clazz != null; clazz = clazz.getSuperclass()) {
+                types.add(clazz);
+                addInterfaces(types, clazz);
+            }
+            typeClosure = types.toArray(new Class<?>[types.size()]);
+            if (mTypeClosures.size() >= MAX_CACHE_SIZE) {
+                Iterator<Class<?>> iterator = mTypeClosures.keySet().iterator();
+                if (iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+            mTypeClosures.put(eventClass, typeClosure);
+        }
+        return typeClosure;
+    }
+
+    /**
+     * 深度优先添加全部接口,已经添加过的接口及其父接口不再重复添加
+     *
+     * @param types
+     * @param clazz
+     */
+    private void addInterfaces(Set<Class<?>> types, Class<?> clazz) {
+        for (Class<?> interfaceClass : clazz.getInterfaces()) {
+            if (types.add(interfaceClass)) {
+                addInterfaces(types, interfaceClass);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.sunnybear.library.network;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sunnybear.library.network.interceptor.OfflineCacheInterceptor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 缓存命中时读取一次响应体的耗时.
+ * reflective是OkHttpRequestHelper原来的反射调用Cache.get,onlyIfCached是现在的FORCE_CACHE请求.
+ * cacheControl是服务器返回的缓存头,客户端与OkHttpManager一样安装了{@see OfflineCacheInterceptor},
+ * 要求重新验证的缓存也必须命中.
+ * 缓存在setup中通过本地HttpServer写入,写入后关闭服务器,保证测量期间不会访问网络
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CacheHitBenchmark {
+    private static final int BODY_SIZE = 4 * 1024;
+
+    @Param({"reflective", "onlyIfCached"})
+    String lookup;
+
+    @Param({"max-age=600", "no-cache", "max-age=0, must-revalidate"})
+    String cacheControl;
+
+    private File mCacheDirectory;
+    private OkHttpClient mOkHttpClient;
+    private Request mRequest;
+    private Request mCacheRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = new byte[BODY_SIZE];
+                exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        try {
+            mCacheDirectory = File.createTempFile("CacheHitBenchmark", "");
+            mCacheDirectory.delete();
+            mOkHttpClient = new OkHttpClient.Builder()
+                    .cache(new Cache(mCacheDirectory, 10 * 1024 * 1024))
+                    .addNetworkInterceptor(new OfflineCacheInterceptor())
+                    .build();
+            mRequest = new Request.Builder()
+                    .url("http://127.0.0.1:" + server.getAddress().getPort() + "/list")
+                    .build();
+            mOkHttpClient.newCall(mRequest).execute().body().close();
+        } finally {
+            server.stop(0);
+        }
+        mCacheRequest = mRequest.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build();
+        Response response = lookup();
+        if (response == null || response.code() != 200)
+            throw new IllegalStateException("cache miss: " + lookup + " [" + cacheControl + "]");
+        response.body().close();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mOkHttpClient.cache().delete();
+    }
+
+    @Benchmark
+    public byte[] lookupAndRead() throws Exception {
+        return lookup().body().bytes();
+    }
+
+    private Response lookup() throws Exception {
+        if ("reflective".equals(lookup)) {
+            Method get = Cache.class.getDeclaredMethod("get", Request.class);
+            get.setAccessible(true);
+            return (Response) get.invoke(mOkHttpClient.cache(), mRequest);
+        }
+        return mOkHttpClient.newCall(mCacheRequest).execute();
+    }
+}
@@ -0,0 +1,144 @@
+package com.sunnybear.library.network;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.sunnybear.library.network.util.StreamingJsonParser;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * StreamingJsonParser的异常分类测试,失败时以非0状态退出.
+ * <p>
+ * 读取响应流时抛出的IOException必须原样抛出(回调报告网络错误),json格式错误或者不完整时抛出JsonParseException(回调报告数据错误).
+ * <p>
+ * 运行: ./gradlew :network-benchmark:streamingParserTest
+ */
+public final class StreamingJsonParserTest {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final Type TYPE = new TypeToken<List<Item>>() {
+    }.getType();
+
+    private StreamingJsonParserTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        wellFormed();
+        streamFailsPartway();
+        malformed();
+        truncated();
+        empty();
+        System.out.println("StreamingJsonParserTest passed");
+    }
+
+    private static void wellFormed() throws IOException {
+        List<Item> items = StreamingJsonParser.parse(body(items(1000)), TYPE);
+        check(items != null && items.size() == 1000, "wellFormed: size=" + (items == null ? null : items.size()));
+        check(items.get(999).id == 999, "wellFormed: last id=" + items.get(999).id);
+    }
+
+    private static void streamFailsPartway() {
+        //前半部分正常读出,之后模拟网络中断
+        String json = items(1000);
+        IOException failure = new IOException("unexpected end of stream");
+        ResponseBody body = ResponseBody.create(JSON, -1,
+                Okio.buffer(new FailingSource(json.substring(0, json.length() / 2), failure)));
+        try {
+            StreamingJsonParser.parse(body, TYPE);
+            check(false, "streamFailsPartway: no exception");
+        } catch (IOException e) {
+            check(e == failure, "streamFailsPartway: unexpected IOException " + e);
+        } catch (JsonParseException e) {
+            check(false, "streamFailsPartway: reported as data error " + e);
+        }
+    }
+
+    private static void malformed() {
+        expectParseError("malformed", "[{\"id\":1,\"name\":\"a\"},{\"id\":2 \"name\":\"b\"}]");
+        expectParseError("wrongType", "{\"id\":1}");
+    }
+
+    private static void truncated() {
+        String json = items(10);
+        expectParseError("truncated", json.substring(0, json.length() / 2));
+    }
+
+    private static void empty() throws IOException {
+        Object result = StreamingJsonParser.parse(body(""), TYPE);
+        check(result == null, "empty: result=" + result);
+    }
+
+    private static void expectParseError(String name, String json) {
+        try {
+            StreamingJsonParser.parse(body(json), TYPE);
+            check(false, name + ": no exception");
+        } catch (IOException e) {
+            check(false, name + ": reported as network error " + e);
+        } catch (JsonParseException e) {
+            //数据错误
+        }
+    }
+
+    private static ResponseBody body(String json) {
+        return ResponseBody.create(JSON, json);
+    }
+
+    private static String items(int count) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                builder.append(',');
+            builder.append("{\"id\":").append(i).append(",\"name\":\"item").append(i).append("\"}");
+        }
+        return builder.append(']').toString();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.err.println("StreamingJsonParserTest failed: " + message);
+            System.exit(1);
+        }
+    }
+
+    static class Item {
+        int id;
+        String name;
+    }
+
+    /**
+     * 先返回给定的数据,读完后抛出异常
+     */
+    static class FailingSource implements Source {
+        private final Buffer mData = new Buffer();
+        private final IOException mFailure;
+
+        FailingSource(String data, IOException failure) {
+            mData.writeUtf8(data);
+            mFailure = failure;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (mData.size() == 0)
+                throw mFailure;
+            return mData.read(sink, Math.min(byteCount, 512));
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
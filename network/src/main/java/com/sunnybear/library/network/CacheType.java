@@ -21,4 +21,8 @@ public interface CacheType {
      * 先查询网络数据，如果网络没有，再查询本地缓存
      */
     int NETWORK_ELSE_CACHE = 3;
+    /**
+     * 先返回本地缓存，再到网络验证缓存，只有内容变化时才返回网络数据
+     */
+    int CACHE_THEN_NETWORK = 4;
 }
@@ -1,7 +1,9 @@
 package com.sunnybear.library.network;
 
+import com.sunnybear.library.network.interceptor.NetworkInterceptor;
+import com.sunnybear.library.network.interceptor.OfflineCacheInterceptor;
+
 import java.io.File;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -11,6 +13,8 @@ import okhttp3.OkHttpClient;
 
 /**
  * OkHttp管理
+ * 整个进程共享一个OkHttpClient,连接池、调度线程池和磁盘缓存只有一份;
+ * 需要单独配置的请求通过{@link #generateOkHttpClient(List)}派生轻量的客户端,派生的客户端仍然共享这些资源
  * Created by guchenkai on 2016/5/18.
  */
 public class OkHttpManager {
@@ -19,15 +23,14 @@ public class OkHttpManager {
     private static int READ_TIMEOUT_MILLIS;//读取时间超时
 
     private volatile static OkHttpManager instance;
-    private static List<Interceptor> mInterceptors;
 
     private int mCacheSize;
     private String mCacheDirectoryPath;
+    private volatile OkHttpClient mOkHttpClient;
 
     public OkHttpManager() {
         mCacheDirectoryPath = NetworkConfiguration.getNetworkCacheDirectoryPath();
         mCacheSize = NetworkConfiguration.getNetworkCacheSize();
-        mInterceptors = new LinkedList<>();
 
         CONNECT_TIMEOUT_MILLIS = NetworkConfiguration.CONNECT_TIMEOUT_MILLIS;
         WRITE_TIMEOUT_MILLIS = NetworkConfiguration.WRITE_TIMEOUT_MILLIS;
@@ -49,37 +52,71 @@ public class OkHttpManager {
     }
 
     /**
-     * 构建OkHttpClient
+     * 获得共享的OkHttpClient
      *
      * @return OkHttpClient
      */
+    public OkHttpClient getOkHttpClient() {
+        OkHttpClient client = mOkHttpClient;
+        if (client == null)
+            synchronized (this) {
+                client = mOkHttpClient;
+                if (client == null)
+                    mOkHttpClient = client = createOkHttpClient();
+            }
+        return client;
+    }
+
+    /**
+     * 构建OkHttpClient
+     *
+     * @return 共享的OkHttpClient
+     */
     public OkHttpClient build() {
-        return generateOkHttpClient(mInterceptors);
+        return getOkHttpClient();
     }
 
     /**
-     * 添加拦截器
+     * 向共享的OkHttpClient添加网络拦截器,对之后的全部请求生效,同一个拦截器只会添加一次
      *
      * @param interceptor 拦截器
      * @return OkHttpManager
      */
-    public OkHttpManager addInterceptor(Interceptor interceptor) {
-        mInterceptors.add(interceptor);
+    public synchronized OkHttpManager addInterceptor(Interceptor interceptor) {
+        OkHttpClient client = getOkHttpClient();
+        if (!client.networkInterceptors().contains(interceptor))
+            mOkHttpClient = client.newBuilder().addNetworkInterceptor(interceptor).build();
         return this;
     }
 
     /**
-     * 获得OkHttp客户端
+     * 从共享的OkHttpClient派生客户端,派生的客户端共享连接池、调度线程池和磁盘缓存
      *
+     * @param interceptors 派生客户端额外的网络拦截器
      * @return OkHttp客户端
      */
     public OkHttpClient generateOkHttpClient(List<Interceptor> interceptors) {
+        OkHttpClient client = getOkHttpClient();
+        if (interceptors == null || interceptors.size() == 0)
+            return client;
+        OkHttpClient.Builder builder = client.newBuilder();
+        builder.networkInterceptors().addAll(interceptors);
+        return builder.build();
+    }
+
+    /**
+     * 创建共享的OkHttpClient
+     *
+     * @return OkHttp客户端
+     */
+    private OkHttpClient createOkHttpClient() {
         OkHttpClient.Builder builder = new OkHttpClient.Builder();
         builder.connectTimeout(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
         builder.writeTimeout(WRITE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
         builder.readTimeout(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        if (interceptors != null && interceptors.size() > 0)
-            builder.networkInterceptors().addAll(interceptors);
+        builder.addNetworkInterceptor(new NetworkInterceptor());
+        //要求重新验证的响应也能被CACHE和CACHE_ELSE_NETWORK读取
+        builder.addNetworkInterceptor(new OfflineCacheInterceptor());
 //        try {
 //            SSLContext context = SSLContext.getInstance("TLS");
 //            context.init(null, new TrustManager[]{new SSLTrustManager()}, new SecureRandom());
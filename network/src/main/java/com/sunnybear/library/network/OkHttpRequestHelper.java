@@ -4,7 +4,6 @@ import android.content.Context;
 
 import com.sunnybear.library.network.callback.DownloadCallback;
 import com.sunnybear.library.network.callback.RequestCallback;
-import com.sunnybear.library.network.interceptor.NetworkInterceptor;
 import com.sunnybear.library.network.request.FormRequestBuilder;
 import com.sunnybear.library.network.request.RequestMethod;
 import com.sunnybear.library.util.FileUtils;
@@ -12,16 +11,17 @@ import com.sunnybear.library.util.Logger;
 import com.sunnybear.library.util.ResourcesUtils;
 
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.util.List;
 
-import okhttp3.Cache;
+import okhttp3.CacheControl;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ByteString;
 
 /**
  * 普通网络请求助手
@@ -33,12 +33,12 @@ public class OkHttpRequestHelper {
     private Context mContext;
     private int mCacheType;
     private OkHttpClient mOkHttpClient;
+    private boolean mCoalesce = true;
 
     public OkHttpRequestHelper(Context context) {
         mContext = context;
-        mOkHttpClient = OkHttpManager.getInstance()
-                .addInterceptor(new NetworkInterceptor())
-                /*.addInterceptor(new ResponseInfoInterceptor())*/.build();
+        //共享OkHttpManager的客户端,添加拦截器时再派生
+        mOkHttpClient = OkHttpManager.getInstance().getOkHttpClient();
         mCacheType = CacheType.NETWORK_ELSE_CACHE;//默认是先请求网络,再请求缓存
     }
 
@@ -58,24 +58,46 @@ public class OkHttpRequestHelper {
     }
 
     /**
-     * 添加拦截器
+     * 设置是否合并并发的相同GET请求,默认合并
+     *
+     * @param coalesce 是否合并
+     * @return OkHttpFormEncodingHelper实例
+     */
+    public OkHttpRequestHelper coalesce(boolean coalesce) {
+        mCoalesce = coalesce;
+        return this;
+    }
+
+    /**
+     * 获得被合并的请求数
+     *
+     * @return 合并后没有发出的请求数
+     */
+    public static long getCoalescedCount() {
+        return SingleFlight.getCoalescedCount();
+    }
+
+    /**
+     * 添加拦截器,只对当前助手的请求生效
      *
      * @param interceptor 拦截器
      * @return OkHttpFormEncodingHelper实例
      */
     public OkHttpRequestHelper addInterceptor(Interceptor interceptor) {
-        mOkHttpClient.networkInterceptors().add(interceptor);
+        mOkHttpClient = mOkHttpClient.newBuilder().addNetworkInterceptor(interceptor).build();
         return this;
     }
 
     /**
-     * 添加拦截器
+     * 添加拦截器,只对当前助手的请求生效
      *
      * @param interceptors 拦截器组
      * @return OkHttpFormEncodingHelper实例
      */
     public OkHttpRequestHelper addInterceptors(List<Interceptor> interceptors) {
-        mOkHttpClient.networkInterceptors().addAll(interceptors);
+        OkHttpClient.Builder builder = mOkHttpClient.newBuilder();
+        builder.networkInterceptors().addAll(interceptors);
+        mOkHttpClient = builder.build();
         return this;
     }
 
@@ -87,7 +109,10 @@ public class OkHttpRequestHelper {
      */
     private void requestFromNetwork(Request request, Callback callback) {
         Logger.d(TAG, "读取网络信息,Url=" + getUrl(request));
-        mOkHttpClient.newCall(request).enqueue(callback);
+        if (mCoalesce && SingleFlight.isCoalescable(request))
+            SingleFlight.enqueue(mOkHttpClient, request, callback);
+        else
+            mOkHttpClient.newCall(request).enqueue(callback);
     }
 
     /**
@@ -97,7 +122,7 @@ public class OkHttpRequestHelper {
      * @param callback 请求回调
      */
     private void requestFromCache(Request request, RequestCallback callback) {
-        Response response = getResponse(mOkHttpClient.cache(), request);
+        Response response = getResponse(request);
         if (response != null)
             try {
                 Logger.d(TAG, "读取缓存信息,Url=" + getUrl(request));
@@ -111,20 +136,98 @@ public class OkHttpRequestHelper {
     }
 
     /**
-     * 反射方法取得响应体
+     * 先返回缓存,再带上ETag到网络验证,网络数据与缓存不同时才回调onResponse
+     *
+     * @param request  请求实例
+     * @param callback 请求回调
+     */
+    private void requestCacheThenNetwork(Request request, final RequestCallback callback) {
+        Response cached = getResponse(request);
+        byte[] cachedBody = null;
+        if (cached != null) {
+            if (cached.isSuccessful())
+                try {
+                    cachedBody = cached.body().bytes();
+                } catch (IOException e) {
+                    Logger.e(e);
+                }
+            else
+                //缓存的404、301等响应不使用,关闭缓存快照
+                cached.body().close();
+        }
+        //没有可用的缓存,按普通网络请求处理
+        if (cachedBody == null) {
+            callback.onStart();
+            requestFromNetwork(request, callback);
+            return;
+        }
+        try {
+            Logger.d(TAG, "读取缓存信息,Url=" + getUrl(request));
+            callback.onCacheResponse(null, bufferedResponse(cached, cachedBody));
+        } catch (IOException e) {
+            callback.onFailure(null, e);
+            Logger.e(e);
+        }
+        final ByteString cachedHash = ByteString.of(cachedBody).md5();
+        String etag = cached.header("ETag");
+        Request.Builder builder = request.newBuilder().cacheControl(CacheControl.FORCE_NETWORK);
+        if (etag != null)
+            builder.header("If-None-Match", etag);
+        requestFromNetwork(builder.build(), new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                String url = getUrl(call.request());
+                if (!response.isSuccessful()) {
+                    //304或者请求失败时保留已返回的缓存
+                    response.body().close();
+                    Logger.d(TAG, "缓存验证结束,状态码=" + response.code() + ",Url=" + url);
+                    return;
+                }
+                byte[] body = response.body().bytes();
+                if (cachedHash.equals(ByteString.of(body).md5())) {
+                    Logger.d(TAG, "缓存未变化,Url=" + url);
+                    return;
+                }
+                callback.onResponse(call, bufferedResponse(response, body));
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Logger.e(TAG, "缓存验证失败,Url=" + getUrl(call.request()), e);
+            }
+        });
+    }
+
+    /**
+     * 用已读取的响应体重新生成响应
+     *
+     * @param response 响应
+     * @param body     已读取的响应体
+     * @return 响应
+     */
+    private Response bufferedResponse(Response response, byte[] body) {
+        return response.newBuilder()
+                .body(ResponseBody.create(response.body().contentType(), body))
+                .build();
+    }
+
+    /**
+     * 使用only-if-cached请求读取缓存,接受过期的缓存,命中时不经过网络拦截器.
+     * no-cache和must-revalidate的响应由{@see com.sunnybear.library.network.interceptor.OfflineCacheInterceptor}改写后写入缓存,同样可以读取;
+     * 改写之前写入的这类缓存和没有安装该拦截器的客户端读不到,按没有缓存处理
      *
-     * @param cache   缓存
      * @param request 请求体
-     * @return 响应体
+     * @return 缓存的响应体,没有缓存时返回null
      */
-    private Response getResponse(Cache cache, Request request) {
-        Class clz = cache.getClass();
+    private Response getResponse(Request request) {
+        Request cacheRequest = request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build();
         try {
-            Method get = clz.getDeclaredMethod("get", Request.class);
-            get.setAccessible(true);
-            return (Response) get.invoke(cache, request);
-        } catch (Exception e) {
-            e.printStackTrace();
+            Response response = mOkHttpClient.newCall(cacheRequest).execute();
+            //未命中时OkHttp返回504,且没有cacheResponse
+            if (response.cacheResponse() != null)
+                return response;
+            response.body().close();
+        } catch (IOException e) {
             Logger.e(e);
         }
         return null;
@@ -170,6 +273,9 @@ public class OkHttpRequestHelper {
                     }
                 });
                 break;
+            case CacheType.CACHE_THEN_NETWORK:
+                requestCacheThenNetwork(request, callback);
+                break;
             case CacheType.NETWORK_ELSE_CACHE:
                 requestFromNetwork(request, new Callback() {
                     @Override
@@ -0,0 +1,180 @@
+package com.sunnybear.library.network;
+
+import com.sunnybear.library.util.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 合并并发的相同GET请求
+ * 同一个客户端上方法、url和请求头都相同的GET请求在第一个请求返回前只发出一次,
+ * 响应体读取到内存后分发给每个回调;只有一个回调时直接传递原始响应,不会缓冲响应体
+ */
+final class SingleFlight {
+    private static final String TAG = SingleFlight.class.getSimpleName();
+
+    private static final Map<Key, Flight> sInFlight = new HashMap<>();
+    private static final AtomicLong sCoalescedCount = new AtomicLong();
+
+    private SingleFlight() {
+    }
+
+    /**
+     * @param request 请求体
+     * @return 是否可以合并
+     */
+    static boolean isCoalescable(Request request) {
+        return "GET".equals(request.method());
+    }
+
+    /**
+     * 发出请求,已经有相同的请求在进行时只加入回调
+     *
+     * @param client   OkHttp客户端
+     * @param request  请求体
+     * @param callback 请求回调
+     */
+    static void enqueue(OkHttpClient client, Request request, Callback callback) {
+        Key key = new Key(client, request);
+        Flight flight;
+        synchronized (sInFlight) {
+            flight = sInFlight.get(key);
+            if (flight != null) {
+                flight.mCallbacks.add(callback);
+                sCoalescedCount.incrementAndGet();
+                Logger.d(TAG, "合并请求,Url=" + request.url());
+                return;
+            }
+            flight = new Flight(key);
+            flight.mCallbacks.add(callback);
+            sInFlight.put(key, flight);
+        }
+        client.newCall(request).enqueue(flight);
+    }
+
+    /**
+     * @return 被合并的请求数
+     */
+    static long getCoalescedCount() {
+        return sCoalescedCount.get();
+    }
+
+    /**
+     * 请求结束,之后相同的请求会重新发出
+     *
+     * @param flight 进行中的请求
+     * @return 等待结果的回调
+     */
+    private static List<Callback> complete(Flight flight) {
+        synchronized (sInFlight) {
+            sInFlight.remove(flight.mKey);
+            return new ArrayList<>(flight.mCallbacks);
+        }
+    }
+
+    /**
+     * 进行中的请求
+     */
+    private static final class Flight implements Callback {
+        final Key mKey;
+        /**
+         * 只在持有sInFlight锁时访问
+         */
+        final List<Callback> mCallbacks = new ArrayList<>();
+
+        Flight(Key key) {
+            mKey = key;
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            List<Callback> callbacks = complete(this);
+            if (callbacks.size() == 1) {
+                callbacks.get(0).onResponse(call, response);
+                return;
+            }
+            byte[] bytes;
+            MediaType contentType;
+            try {
+                ResponseBody body = response.body();
+                contentType = body.contentType();
+                bytes = body.bytes();
+            } catch (IOException e) {
+                for (Callback callback : callbacks)
+                    deliverFailure(callback, call, e);
+                return;
+            }
+            for (Callback callback : callbacks)
+                try {
+                    callback.onResponse(call, response.newBuilder()
+                            .body(ResponseBody.create(contentType, bytes)).build());
+                } catch (IOException | RuntimeException e) {
+                    //一个回调出错不能影响其他合并的回调
+                    Logger.e(TAG, "合并请求的回调出错,Url=" + call.request().url(), e);
+                }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            for (Callback callback : complete(this))
+                deliverFailure(callback, call, e);
+        }
+
+        private void deliverFailure(Callback callback, Call call, IOException e) {
+            try {
+                callback.onFailure(call, e);
+            } catch (RuntimeException t) {
+                Logger.e(TAG, "合并请求的回调出错,Url=" + call.request().url(), t);
+            }
+        }
+    }
+
+    /**
+     * 请求的合并key,客户端不同时(例如添加了不同的拦截器)不合并
+     */
+    private static final class Key {
+        final OkHttpClient mClient;
+        final String mMethod;
+        final String mUrl;
+        final String mHeaders;
+
+        Key(OkHttpClient client, Request request) {
+            mClient = client;
+            mMethod = request.method();
+            mUrl = request.url().toString();
+            mHeaders = request.headers().toString();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(mClient);
+            result = 31 * result + mMethod.hashCode();
+            result = 31 * result + mUrl.hashCode();
+            result = 31 * result + mHeaders.hashCode();
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return mClient == other.mClient && mMethod.equals(other.mMethod) && mUrl.equals(other.mUrl)
+                    && mHeaders.equals(other.mHeaders);
+        }
+    }
+}
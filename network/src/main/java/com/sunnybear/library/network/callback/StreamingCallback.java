@@ -0,0 +1,188 @@
+package com.sunnybear.library.network.callback;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.gson.JsonParseException;
+import com.sunnybear.library.network.NetworkConfiguration;
+import com.sunnybear.library.network.R;
+import com.sunnybear.library.network.util.StreamingJsonParser;
+import com.sunnybear.library.util.Logger;
+import com.sunnybear.library.util.ResourcesUtils;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import okhttp3.Call;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 流式解析json的回调,在OkHttp的工作线程中直接从响应流解析出泛型对象,只把解析结果切换到主线程.
+ * 与{@see SerializableCallback}相比不需要把整个响应读成字符串,适合数据量大的列表请求.
+ * 泛型可以是任意类型,例如List<Model>,需要直接继承本类(匿名内部类)以便获取泛型类型
+ */
+public abstract class StreamingCallback<T> extends RequestCallback {
+    public static final String TAG = StreamingCallback.class.getSimpleName();
+
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());//主线程回调
+
+    private final Type mType;
+
+    public StreamingCallback(Context context) {
+        super(context);
+        mType = ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+    }
+
+    /**
+     * 网络请求成功回调
+     *
+     * @param response 响应
+     * @throws IOException
+     */
+    @Override
+    public void onResponse(Call call, Response response) throws IOException {
+        processResponse(response, true);
+    }
+
+    /**
+     * 缓存请求成功回调
+     *
+     * @param response 响应
+     * @throws IOException
+     */
+    @Override
+    public void onCacheResponse(Call call, Response response) throws IOException {
+        processResponse(response, false);
+    }
+
+    /**
+     * 处理响应,在当前线程解析
+     *
+     * @param response  响应
+     * @param isNetwork 是否是网络请求
+     */
+    private void processResponse(Response response, final boolean isNetwork) {
+        if (response == null) {
+            postFailure("", 404, isNetwork ? ResourcesUtils.getString(NetworkConfiguration.getContext(), R.string.not_network)
+                    : ResourcesUtils.getString(NetworkConfiguration.getContext(), R.string.not_cache));
+            return;
+        }
+        final String url = response.request().url().url().toString();
+        int statusCode = response.code();
+        Logger.d(TAG, "url=" + url + ",状态码=" + statusCode);
+        ResponseBody body = response.body();
+        if (!response.isSuccessful()) {
+            body.close();
+            postFailure(url, statusCode, response.message());
+            return;
+        }
+        final T result;
+        try {
+            result = StreamingJsonParser.parse(body, mType);
+        } catch (IOException e) {//读取响应流时网络中断
+            Logger.e(TAG, "url=" + url + "\n", e);
+            postFailure(url, 500, e.getMessage());
+            return;
+        } catch (JsonParseException e) {
+            Logger.e(TAG, "url=" + url + "\n", e);
+            postFailure(url, -200, "data数据返回错误");
+            return;
+        } finally {
+            body.close();
+        }
+        if (result == null) {
+            postFailure(url, -200, "data数据返回错误");
+            return;
+        }
+        sHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (isNetwork)
+                    onSuccess(url, result);
+                else
+                    onCacheSuccess(url, result);
+                //请求完成
+                onFinish(url, true, "");
+            }
+        });
+    }
+
+    /**
+     * 请求失败回调
+     *
+     * @param call 没有缓存等情况下为null
+     * @param e    异常
+     */
+    @Override
+    public void onFailure(Call call, IOException e) {
+        String url = call != null ? call.request().url().url().toString() : "";
+        Logger.e(TAG, "url=" + url + "\n", e);
+        if (e instanceof SocketTimeoutException || e instanceof UnknownHostException) {
+            postFailure(url, 500, "请检查网络后重新尝试");
+            sHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onTimeout();
+                }
+            });
+        } else
+            postFailure(url, 500, e.getMessage());
+    }
+
+    /**
+     * 在主线程回调失败
+     *
+     * @param url        网络地址
+     * @param statusCode 状态码
+     * @param msg        失败错误信息
+     */
+    private void postFailure(final String url, final int statusCode, final String msg) {
+        sHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                onFailure(url, statusCode, msg);
+                //请求完成
+                onFinish(url, false, msg);
+            }
+        });
+    }
+
+    /**
+     * 网络请求成功回调
+     *
+     * @param url    网络地址
+     * @param result 解析结果
+     */
+    public abstract void onSuccess(String url, T result);
+
+    /**
+     * 缓存请求成功回调
+     *
+     * @param url    网络地址
+     * @param result 解析结果
+     */
+    public void onCacheSuccess(String url, T result) {
+
+    }
+
+    /**
+     * 请求失败回调
+     *
+     * @param url        网络地址
+     * @param statusCode 状态码
+     * @param msg        失败错误信息
+     */
+    public abstract void onFailure(String url, int statusCode, String msg);
+
+    /**
+     * 超时回调
+     */
+    public void onTimeout() {
+        mLoading.dismiss();
+    }
+}
@@ -0,0 +1,90 @@
+package com.sunnybear.library.network.interceptor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * 离线缓存拦截器
+ * OkHttp对no-cache和must-revalidate的缓存不响应only-if-cached请求(返回504),CACHE和CACHE_ELSE_NETWORK就读不到这些缓存.
+ * 写入缓存前把no-cache(包括Pragma: no-cache)改写为max-age=0,并去掉must-revalidate和proxy-revalidate:
+ * 普通请求仍然每次到服务器验证,only-if-cached请求可以读取过期的缓存.
+ * 改写后的Cache-Control同样会出现在网络响应中
+ */
+public class OfflineCacheInterceptor implements Interceptor {
+    private static final String CACHE_CONTROL = "Cache-Control";
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        CacheControl cacheControl = response.cacheControl();
+        if (!cacheControl.noCache() && !cacheControl.mustRevalidate())
+            return response;
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header(CACHE_CONTROL, rewrite(response.headers(CACHE_CONTROL), cacheControl.noCache()))
+                .build();
+    }
+
+    /**
+     * 改写Cache-Control
+     *
+     * @param values  原始的Cache-Control头
+     * @param noCache 是否要求每次验证
+     * @return 改写后的Cache-Control
+     */
+    private static String rewrite(List<String> values, boolean noCache) {
+        StringBuilder builder = new StringBuilder();
+        for (String value : values)
+            for (String directive : split(value)) {
+                String name = directive.split("=", 2)[0].trim().toLowerCase();
+                if (name.equals("must-revalidate") || name.equals("proxy-revalidate"))
+                    continue;
+                if (noCache && (name.equals("no-cache") || name.equals("max-age")))
+                    continue;
+                append(builder, directive);
+            }
+        if (noCache)
+            append(builder, "max-age=0");
+        return builder.toString();
+    }
+
+    private static void append(StringBuilder builder, String directive) {
+        if (builder.length() > 0)
+            builder.append(", ");
+        builder.append(directive);
+    }
+
+    /**
+     * 按逗号拆分指令,引号中的逗号(例如no-cache="Set-Cookie, Set-Cookie2")不拆分
+     *
+     * @param value Cache-Control头
+     * @return 指令列表
+     */
+    private static List<String> split(String value) {
+        List<String> directives = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"')
+                quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                addDirective(directives, value.substring(start, i));
+                start = i + 1;
+            }
+        }
+        addDirective(directives, value.substring(start));
+        return directives;
+    }
+
+    private static void addDirective(List<String> directives, String directive) {
+        directive = directive.trim();
+        if (!directive.isEmpty())
+            directives.add(directive);
+    }
+}
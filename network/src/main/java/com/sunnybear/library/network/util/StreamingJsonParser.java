@@ -0,0 +1,44 @@
+package com.sunnybear.library.network.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+
+/**
+ * 从响应流直接解析json,不把响应体读成字符串
+ */
+public final class StreamingJsonParser {
+    private static final Gson sGson = new Gson();
+
+    private StreamingJsonParser() {
+    }
+
+    /**
+     * 解析响应体,不关闭响应体
+     * Gson会把读取时的IOException包装成JsonSyntaxException,这里区分开:
+     * 读取响应流出错(例如网络中断)时抛出原始的IOException,json格式错误或者不完整时抛出JsonParseException
+     *
+     * @param body 响应体
+     * @param type 解析的类型
+     * @return 解析结果, 响应体为空时返回null
+     * @throws IOException 读取响应流出错
+     */
+    public static <T> T parse(ResponseBody body, Type type) throws IOException {
+        try {
+            return sGson.fromJson(new JsonReader(body.charStream()), type);
+        } catch (JsonParseException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException && !(cause instanceof MalformedJsonException)
+                    && !(cause instanceof EOFException))
+                throw (IOException) cause;
+            throw e;
+        }
+    }
+}